@@ -0,0 +1,23 @@
+package main.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Runs the JMH benchmarks (`java -jar benchmarks/target/benchmarks.jar [JMH options]`).
+ *
+ * Unless another format is given with `-rf`, the results are written as JSON in `jmh-result.json`,
+ * so that the results of two versions can be compared.
+ */
+public class Benchmarks {
+  public static void main(String[] args) throws Exception {
+    ArrayList<String> options = new ArrayList<>(Arrays.asList(args));
+    if (!options.contains("-rf")) {
+      options.addAll(Arrays.asList("-rf", "json"));
+      if (!options.contains("-rff")) {
+        options.addAll(Arrays.asList("-rff", "jmh-result.json"));
+      }
+    }
+    org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+  }
+}
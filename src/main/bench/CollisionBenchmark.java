@@ -0,0 +1,65 @@
+package main.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import main.java.Assets;
+import main.java.CollisionMask;
+import main.java.Raster;
+
+/**
+ * The collision check between the player and an obstacle, made after each step of the obstacles and of the jump.
+ * The obstacle goes through every position around the player,
+ * so most of the checks are rejected by the bounding boxes, and the others compare the bits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CollisionBenchmark {
+  private static final int PIXEL_SIZE = 2;
+
+  private Raster obstacle;
+  private CollisionMask playerMask;
+  private CollisionMask obstacleMask;
+  private int dx = 0;
+
+  @Setup
+  public void setup() throws IOException {
+    obstacle = Assets.readMatrix(Assets.OBSTACLES_DIRECTORY + "/cactus.csv");
+    playerMask = new CollisionMask(Assets.readMatrix(Assets.SKINS_DIRECTORY + "/amongus.csv"), PIXEL_SIZE);
+    obstacleMask = new CollisionMask(obstacle, PIXEL_SIZE);
+  }
+
+  /**
+   * The obstacle moves from 20 cells on the right of the player to 20 cells on its left.
+   */
+  @Benchmark
+  public boolean overlaps() {
+    dx = dx <= -20 ? 20 : dx - 1;
+    return playerMask.overlaps(obstacleMask, dx, -1);
+  }
+
+  /**
+   * The obstacle is right on the player, so the bits are always compared.
+   */
+  @Benchmark
+  public boolean overlapsClose() {
+    return playerMask.overlaps(obstacleMask, 1, 1);
+  }
+
+  /**
+   * The computation of a mask, made once per obstacle.
+   */
+  @Benchmark
+  public CollisionMask createMask() {
+    return new CollisionMask(obstacle, PIXEL_SIZE);
+  }
+}
@@ -0,0 +1,32 @@
+package main.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import main.java.Utils;
+
+/**
+ * The conversion of a color into its ANSI sequence.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColorBenchmark {
+  private final int[] rgb = new int[3];
+  private int next = 0;
+
+  @Benchmark
+  public String RGBToANSI() {
+    next++;
+    rgb[0] = next & 0xFF;
+    rgb[1] = (next >> 8) & 0xFF;
+    rgb[2] = (next >> 16) & 0xFF;
+    return Utils.RGBToANSI(rgb, true);
+  }
+}
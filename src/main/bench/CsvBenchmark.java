@@ -0,0 +1,92 @@
+package main.bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Scanner;
+
+import main.java.Assets;
+
+/**
+ * Compares the time it takes to read a huge map with `CsvTokenizer` (`Assets.readMatrix`)
+ * and with a `Scanner` for each line, the way the matrices used to be read.
+ *
+ * The map is synthetic: 10,000 columns and 1,000 lines of random colors (including -1).
+ * Usage: `java -cp bin main.bench.CsvBenchmark [iterations]`
+ */
+public class CsvBenchmark {
+  private static final int WIDTH = 10_000;
+  private static final int HEIGHT = 1_000;
+
+  public static void main(String[] args) throws IOException {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    File file = File.createTempFile("dinodash-benchmark", ".csv");
+    file.deleteOnExit();
+    writeMap(file);
+    System.out.println("Synthetic map: " + WIDTH + "x" + HEIGHT + " (" + file.length() / 1024 + " KB)");
+
+    // the first run of each one is only there to warm the JIT up
+    long checksum = 0;
+    for (int i = 0; i <= iterations; i++) {
+      long start = System.nanoTime();
+      checksum += readWithScanner(file.getPath()).size();
+      report("Scanner", i, System.nanoTime() - start);
+    }
+    for (int i = 0; i <= iterations; i++) {
+      long start = System.nanoTime();
+      checksum += Assets.readMatrix(file.getPath()).getHeight();
+      report("CsvTokenizer", i, System.nanoTime() - start);
+    }
+    System.out.println("(checksum " + checksum + ")");
+  }
+
+  private static void report(String name, int iteration, long duration) {
+    System.out.println(String.format("%-12s %s %8.2f ms", name, iteration == 0 ? "warm-up" : "run " + iteration + "  ", duration / 1e6));
+  }
+
+  private static void writeMap(File file) throws IOException {
+    Random random = new Random(42);
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+      for (int x = 0; x < WIDTH; x++) {
+        writer.write((x == 0 ? "" : ",") + "a" + x);
+      }
+      writer.newLine();
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          if (x > 0) {
+            writer.write(',');
+          }
+          writer.write(Integer.toString(random.nextInt(33) - 1));
+        }
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * The way the matrices used to be read: a `Scanner` with a regex delimiter for each line,
+   * and each integer boxed in a list.
+   */
+  private static ArrayList<ArrayList<Integer>> readWithScanner(String path) throws IOException {
+    ArrayList<ArrayList<Integer>> grid = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+      reader.readLine(); // voluntarily ignoring the header
+      String line = "";
+      while ((line = reader.readLine()) != null) {
+        ArrayList<Integer> pixels = new ArrayList<>();
+        Scanner scanner = new Scanner(line).useDelimiter(",");
+        while (scanner.hasNext()) {
+          pixels.add(scanner.nextInt());
+        }
+        scanner.close();
+        grid.add(pixels);
+      }
+    }
+    return grid;
+  }
+}
@@ -0,0 +1,93 @@
+package main.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import main.java.Assets;
+import main.java.MapSpawnConfig;
+import main.java.Raster;
+
+/**
+ * The reading of a map and of its spawn config,
+ * either the real ones of the desert, or synthetic ones 10 and 100 times bigger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParsingBenchmark {
+  /**
+   * `1` for the real files, otherwise the factor applied to the size of the synthetic files (in both directions for the map).
+   */
+  @Param({ "1", "10", "100" })
+  public int scale;
+
+  private String mapPath;
+  private String configPath;
+
+  @Setup
+  public void setup() throws IOException {
+    if (scale == 1) {
+      mapPath = Assets.MAPS_DIRECTORY + "/desert.csv";
+      configPath = Assets.CONFIGS_DIRECTORY + "/desert-config.csv";
+      return;
+    }
+    Random random = new Random(42);
+    File map = File.createTempFile("dinodash-map", ".csv");
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(map))) {
+      int width = 80 * scale;
+      for (int x = 0; x < width; x++) {
+        writer.write((x == 0 ? "" : ",") + "a" + x);
+      }
+      writer.newLine();
+      for (int y = 0; y < 40 * scale; y++) {
+        for (int x = 0; x < width; x++) {
+          writer.write((x == 0 ? "" : ",") + (random.nextInt(33) - 1));
+        }
+        writer.newLine();
+      }
+    }
+    File config = File.createTempFile("dinodash-config", ".csv");
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(config))) {
+      writer.write("name,speed,y");
+      writer.newLine();
+      for (int i = 0; i < 10 * scale * scale; i++) {
+        writer.write("cactus," + (150 + random.nextInt(50)) + ",30");
+        writer.newLine();
+      }
+    }
+    mapPath = map.getPath();
+    configPath = config.getPath();
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (scale != 1) {
+      new File(mapPath).delete();
+      new File(configPath).delete();
+    }
+  }
+
+  @Benchmark
+  public Raster readMatrix() throws IOException {
+    return Assets.readMatrix(mapPath);
+  }
+
+  @Benchmark
+  public MapSpawnConfig readSpawnConfig() throws IOException {
+    return MapSpawnConfig.fromCSV(configPath);
+  }
+}
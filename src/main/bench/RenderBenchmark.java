@@ -0,0 +1,143 @@
+package main.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import main.java.Assets;
+import main.java.Color;
+import main.java.DirtyRegions;
+import main.java.FrameBuffer;
+import main.java.Raster;
+import main.java.Renderer;
+import main.java.Terminal;
+
+/**
+ * The drawing of a frame of the desert map: drawing a sprite, erasing it, and sending the changes to the console.
+ * The console is replaced by a channel that throws the bytes away,
+ * so that only the cost of the game is measured (and not the one of the terminal).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderBenchmark {
+  private static final int PIXEL_SIZE = 2;
+
+  /**
+   * A channel that accepts all the bytes and does nothing with them.
+   */
+  static final WritableByteChannel NULL_SINK = new WritableByteChannel() {
+    @Override
+    public int write(ByteBuffer buffer) {
+      int length = buffer.remaining();
+      buffer.position(buffer.limit());
+      return length;
+    }
+
+    @Override
+    public boolean isOpen() { return true; }
+
+    @Override
+    public void close() {}
+  };
+
+  private Raster obstacle;
+  private Raster player;
+  private FrameBuffer background;
+  private FrameBuffer frame;
+  private Renderer renderer;
+  private DirtyRegions dirtyRegions;
+  private int obstacleX;
+
+  @Setup
+  public void setup() throws IOException {
+    Terminal.setOutput(NULL_SINK);
+    Raster map = Assets.readMatrix(Assets.MAPS_DIRECTORY + "/desert.csv");
+    obstacle = Assets.readMatrix(Assets.OBSTACLES_DIRECTORY + "/cactus.csv");
+    player = Assets.readMatrix(Assets.SKINS_DIRECTORY + "/amongus.csv");
+    Color[] colors = new Color[64];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = new Color(new int[]{ i * 4, 255 - i * 4, i }, true);
+    }
+    background = new FrameBuffer(map.getWidth() * PIXEL_SIZE, map.getHeight());
+    background.drawMatrix(map, 0, 0, PIXEL_SIZE, background);
+    frame = new FrameBuffer(background.getWidth(), background.getHeight());
+    frame.copyFrom(background);
+    renderer = new Renderer(colors, 1, 2);
+    renderer.reset(frame.getWidth(), frame.getHeight(), FrameBuffer.TRANSPARENT);
+    renderer.render(frame);
+    obstacleX = frame.getWidth();
+    dirtyRegions = new DirtyRegions(frame.getWidth(), frame.getHeight());
+  }
+
+  /**
+   * Moves the obstacle one cell to the left, and back to the right once it reached the player.
+   */
+  private int nextObstacleX() {
+    obstacleX = obstacleX <= 10 ? frame.getWidth() : obstacleX - 1;
+    return obstacleX;
+  }
+
+  @Benchmark
+  public FrameBuffer drawMatrix() {
+    frame.drawMatrix(obstacle, nextObstacleX(), 28, PIXEL_SIZE, background);
+    return frame;
+  }
+
+  /**
+   * Erases a sprite by copying the background where it was (what `removeElementFromForeground` used to do).
+   */
+  @Benchmark
+  public FrameBuffer eraseMatrix() {
+    frame.copyRegionFrom(background, nextObstacleX(), 28, obstacle.getWidth() * PIXEL_SIZE, obstacle.getHeight());
+    return frame;
+  }
+
+  /**
+   * A frame of the game: the background, a moving obstacle and the player, then only the changes are written.
+   */
+  @Benchmark
+  public int renderFrame() {
+    frame.copyFrom(background);
+    frame.drawMatrix(obstacle, nextObstacleX(), 28, PIXEL_SIZE, background);
+    frame.drawMatrix(player, 2, 30, PIXEL_SIZE, background);
+    return renderer.render(frame);
+  }
+
+  /**
+   * The same frame as `renderFrame`, but only the rectangles where the obstacle moved are drawn again.
+   */
+  @Benchmark
+  public int renderDirtyFrame() {
+    int x = nextObstacleX();
+    dirtyRegions.addSprite(obstacle, x, 28, obstacle.getWidth() * PIXEL_SIZE, obstacle.getHeight());
+    dirtyRegions.addSprite(player, 2, 30, player.getWidth() * PIXEL_SIZE, player.getHeight());
+    dirtyRegions.update();
+    for (int r = 0; r < dirtyRegions.size(); r++) {
+      frame.copyRegionFrom(background, dirtyRegions.getX(r), dirtyRegions.getY(r), dirtyRegions.getWidth(r), dirtyRegions.getHeight(r));
+    }
+    frame.drawMatrix(obstacle, x, 28, PIXEL_SIZE, background);
+    frame.drawMatrix(player, 2, 30, PIXEL_SIZE, background);
+    int bytes = renderer.render(frame, dirtyRegions);
+    dirtyRegions.clear();
+    return bytes;
+  }
+
+  /**
+   * The first frame of a level, when every cell is written.
+   */
+  @Benchmark
+  public int renderFullFrame() {
+    renderer.reset(frame.getWidth(), frame.getHeight(), FrameBuffer.TRANSPARENT);
+    return renderer.render(frame);
+  }
+}
@@ -0,0 +1,294 @@
+package main.java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+/**
+ * A binary file containing all the resources of the `assets` folder,
+ * so that the game doesn't have to parse every CSV file when it starts.
+ *
+ * The file starts with a header:
+ * - the magic number `MAGIC` and the version of the format,
+ * - the number of CSV files it was compiled from (to detect deleted or new files),
+ * - the number of entries, followed by the index of the entries.
+ *
+ * Each entry of the index is its type, its name, the position of its data in the file and the length of this data.
+ * The data of an entry depends on its type:
+ * - pallet: the number of colors, then "x", "r", "g" and "b" for each color (one byte each),
+ * - map, obstacle, skin: the width and the height of the matrix, then its pixels line by line (one byte each),
+ * - config: the number of spawns, then the name, the speed, the y-shift and the time of each spawn.
+ *
+ * The pack is read through a memory-mapped file.
+ * The maps stay in this file until they're needed, so they don't take any memory before that.
+ * The maps wider than `STREAMED_MAP_WIDTH` are never decoded: their columns are read from the file as the camera moves.
+ * If one of the CSV files was modified after the pack, the pack is stale and it mustn't be used.
+ */
+public final class AssetPack {
+  public static final String PACK_PATH = "assets/assets.pack";
+
+  private static final int MAGIC = 0x44444150; // "DDAP"
+  private static final int VERSION = 2;
+
+  /**
+   * The width, in pixels, from which a map is streamed from the pack instead of being decoded.
+   */
+  private static final int STREAMED_MAP_WIDTH = 1024;
+
+  private static final byte TYPE_PALLET = 0;
+  private static final byte TYPE_MAP = 1;
+  private static final byte TYPE_OBSTACLE = 2;
+  private static final byte TYPE_SKIN = 3;
+  private static final byte TYPE_CONFIG = 4;
+
+  /**
+   * Compiles the CSV files of the `assets` folder into a pack.
+   * @param args Optionally, the path of the pack (`PACK_PATH` by default).
+   */
+  public static void main(String[] args) throws IOException {
+    String path = args.length > 0 ? args[0] : PACK_PATH;
+    StartupReport report = new StartupReport();
+    write(Assets.fromCSV(report), path);
+    for (String line : report.getLines()) {
+      System.out.println(line);
+    }
+    System.out.println("Assets compiled into " + path + " (" + new File(path).length() + " bytes).");
+  }
+
+  /**
+   * Gets all the CSV files a pack is compiled from.
+   * @return The CSV files of the `assets` folder.
+   */
+  private static ArrayList<File> getSourceFiles() {
+    ArrayList<File> files = new ArrayList<>();
+    files.add(new File(Assets.COLORS_PATH));
+    String[] directories = { Assets.MAPS_DIRECTORY, Assets.OBSTACLES_DIRECTORY, Assets.SKINS_DIRECTORY, Assets.CONFIGS_DIRECTORY };
+    for (String directory : directories) {
+      for (String name : Utils.getAllFilesFromDirectory(directory)) {
+        files.add(new File(directory + "/" + name));
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Writes the pack of the given resources.
+   * It's written in a temporary file first, renamed once it's complete,
+   * so that a failure never leaves a truncated pack behind.
+   * @param assets The resources, usually read from the CSV files.
+   * @param path The path of the pack.
+   * @throws IOException If a resource can't be decoded (the maps are decoded here for the first time), or if the pack can't be written.
+   */
+  public static void write(Assets assets, String path) throws IOException {
+    ArrayList<byte[]> names = new ArrayList<>();
+    ArrayList<Byte> types = new ArrayList<>();
+    ArrayList<byte[]> entries = new ArrayList<>();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeInt(assets.getColors().length);
+    for (Color color : assets.getColors()) {
+      data.writeByte(color.x ? 1 : 0);
+      for (int channel : color.rgb) {
+        data.writeByte(channel);
+      }
+    }
+    addEntry(types, names, entries, TYPE_PALLET, "pallet", bytes.toByteArray());
+
+    for (String mapName : assets.getMaps().getNames()) {
+      Raster map;
+      try {
+        map = assets.getMaps().load(mapName).decode();
+      } catch (IOException e) {
+        throw new IOException("map " + mapName + ": " + e.getMessage(), e);
+      }
+      addEntry(types, names, entries, TYPE_MAP, mapName, encodeMatrix(map));
+    }
+    for (Obstacle obstacle : assets.getObstacles().values()) {
+      addEntry(types, names, entries, TYPE_OBSTACLE, obstacle.getName(), encodeMatrix(obstacle.getMatrix()));
+    }
+    for (String skin : assets.getSkins().keySet()) {
+      addEntry(types, names, entries, TYPE_SKIN, skin, encodeMatrix(assets.getSkins().get(skin)));
+    }
+    for (String mapName : assets.getConfigs().keySet()) {
+      bytes.reset();
+      ArrayList<ObstacleSpawn> spawns = assets.getConfigs().get(mapName).getSpawns();
+      data.writeInt(spawns.size());
+      for (ObstacleSpawn spawn : spawns) {
+        byte[] obstacleName = spawn.getName().getBytes(StandardCharsets.UTF_8);
+        data.writeShort(obstacleName.length);
+        data.write(obstacleName);
+        data.writeInt(spawn.getSpeed());
+        data.writeInt(spawn.getY());
+        data.writeInt(spawn.getTime());
+      }
+      addEntry(types, names, entries, TYPE_CONFIG, mapName, bytes.toByteArray());
+    }
+
+    // The index is written first, so the position of the data depends on the size of the index.
+    int headerSize = 4 * 4;
+    for (byte[] name : names) {
+      headerSize += 1 + 2 + name.length + 4 + 4;
+    }
+    Path temporary = Paths.get(path + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temporary.toFile()))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(getSourceFiles().size());
+      out.writeInt(entries.size());
+      int offset = headerSize;
+      for (int i = 0; i < entries.size(); i++) {
+        out.writeByte(types.get(i));
+        out.writeShort(names.get(i).length);
+        out.write(names.get(i));
+        out.writeInt(offset);
+        out.writeInt(entries.get(i).length);
+        offset += entries.get(i).length;
+      }
+      for (byte[] entry : entries) {
+        out.write(entry);
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    try {
+      Files.move(temporary, Paths.get(path), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporary, Paths.get(path), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void addEntry(ArrayList<Byte> types, ArrayList<byte[]> names, ArrayList<byte[]> entries, byte type, String name, byte[] entry) {
+    types.add(type);
+    names.add(name.getBytes(StandardCharsets.UTF_8));
+    entries.add(entry);
+  }
+
+  private static byte[] encodeMatrix(Raster matrix) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeInt(matrix.getWidth());
+    data.writeInt(matrix.getHeight());
+    for (int y = 0; y < matrix.getHeight(); y++) {
+      data.write(matrix.getPixels(), y * matrix.getStride(), matrix.getWidth());
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Is the pack more recent than all the CSV files, and compiled from the same files?
+   * @param path The path of the pack.
+   * @return `true` if the pack can be used instead of the CSV files.
+   */
+  public static boolean isUpToDate(String path) {
+    File pack = new File(path);
+    if (!pack.isFile()) {
+      return false;
+    }
+    ArrayList<File> sources = getSourceFiles();
+    for (File source : sources) {
+      if (source.lastModified() > pack.lastModified()) {
+        return false;
+      }
+    }
+    try (RandomAccessFile file = new RandomAccessFile(pack, "r")) {
+      return file.readInt() == MAGIC && file.readInt() == VERSION && file.readInt() == sources.size();
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Reads a pack through a memory-mapped file.
+   * @param path The path of the pack.
+   * @param report Where to record why the pack couldn't be read.
+   * @return The resources of the game, or `null` if the pack couldn't be read.
+   */
+  public static Assets read(String path, StartupReport report) {
+    try (FileChannel channel = new RandomAccessFile(path, "r").getChannel()) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IOException("not a pack of this version of the game");
+      }
+      buffer.getInt(); // the number of source files is only useful to `isUpToDate`
+      int count = buffer.getInt();
+      Assets assets = new Assets();
+      for (int i = 0; i < count; i++) {
+        byte type = buffer.get();
+        byte[] name = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(name);
+        int offset = buffer.getInt();
+        int length = buffer.getInt();
+        ByteBuffer entry = buffer.duplicate();
+        entry.position(offset).limit(offset + length);
+        readEntry(assets, type, new String(name, StandardCharsets.UTF_8), entry);
+      }
+      return assets;
+    } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+      // a truncated or corrupted pack: an entry goes past the end of the file, or a size is negative
+      report.addFailure(path, e);
+      return null;
+    }
+  }
+
+  private static void readEntry(Assets assets, byte type, String name, ByteBuffer entry) {
+    switch (type) {
+      case TYPE_PALLET:
+        Color[] colors = new Color[entry.getInt()];
+        for (int i = 0; i < colors.length; i++) {
+          boolean x = entry.get() == 1;
+          colors[i] = new Color(new int[]{ entry.get() & 0xFF, entry.get() & 0xFF, entry.get() & 0xFF }, x);
+        }
+        assets.colors = colors;
+        break;
+      case TYPE_MAP:
+        ByteBuffer map = entry.slice(); // only decoded when the map is needed
+        int width = map.getInt(0);
+        int height = map.getInt(4);
+        if (width > STREAMED_MAP_WIDTH) {
+          ByteBuffer pixels = map.position(8).slice();
+          assets.maps.register(name, width, height, mapName -> new Map(mapName, width, height, pixels));
+        } else {
+          assets.maps.register(name, width, height, mapName -> new Map(mapName, decodeMatrix(map.duplicate())));
+        }
+        break;
+      case TYPE_OBSTACLE:
+        assets.obstacles.put(name, new Obstacle(name, decodeMatrix(entry)));
+        break;
+      case TYPE_SKIN:
+        assets.skins.put(name, decodeMatrix(entry));
+        break;
+      case TYPE_CONFIG:
+        ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+        int spawnCount = entry.getInt();
+        for (int i = 0; i < spawnCount; i++) {
+          byte[] obstacleName = new byte[entry.getShort() & 0xFFFF];
+          entry.get(obstacleName);
+          spawns.add(new ObstacleSpawn(new String(obstacleName, StandardCharsets.UTF_8), entry.getInt(), entry.getInt(), entry.getInt()));
+        }
+        assets.configs.put(name, new MapSpawnConfig(spawns));
+        break;
+    }
+  }
+
+  private static Raster decodeMatrix(ByteBuffer entry) {
+    Raster matrix = new Raster(entry.getInt(), entry.getInt());
+    entry.get(matrix.getPixels());
+    return matrix;
+  }
+}
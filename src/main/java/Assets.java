@@ -0,0 +1,323 @@
+package main.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * All the resources of the game: the pallet, the maps, the obstacles, the skins and the config of each map.
+ * They're either read from the CSV files of the `assets` folder,
+ * or from a pack compiled from those same files (see `AssetPack`).
+ */
+public class Assets {
+  public static final String COLORS_PATH = "assets/0-colors.csv";
+  public static final String MAPS_DIRECTORY = "assets/maps";
+  public static final String OBSTACLES_DIRECTORY = "assets/obstacles";
+  public static final String SKINS_DIRECTORY = "assets/skins";
+  public static final String CONFIGS_DIRECTORY = "assets/map-configs";
+
+  Color[] colors = new Color[0];
+  MapCache maps = new MapCache(); // decoded only when they're needed
+  HashMap<String, Obstacle> obstacles = new HashMap<>();
+  HashMap<String, Raster> skins = new HashMap<>();
+  HashMap<String, MapSpawnConfig> configs = new HashMap<>(); // where, when and how fast the obstacles spawn for each map
+
+  /**
+   * The maximum number of files read at the same time.
+   */
+  private static final int LOADING_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  /**
+   * Loads all the resources of the game.
+   * They're read from the compiled pack if it's up to date,
+   * otherwise they're read from the CSV files and the pack is compiled again for the next time,
+   * unless some CSV files couldn't be read. A pack that can't be read is recorded in the report, and replaced.
+   * The configs that name an obstacle that doesn't exist are recorded in the report too.
+   * @param report Where to record the duration of each step, and the failures.
+   * @return The resources of the game.
+   */
+  public static Assets load(StartupReport report) {
+    Assets assets = null;
+    long start = System.nanoTime();
+    if (AssetPack.isUpToDate(AssetPack.PACK_PATH)) {
+      assets = AssetPack.read(AssetPack.PACK_PATH, report);
+    }
+    report.addTime("pack", System.nanoTime() - start);
+    if (assets == null) {
+      int packFailures = report.getFailureCount();
+      start = System.nanoTime();
+      assets = fromCSV(report);
+      report.addTime("csv", System.nanoTime() - start);
+      if (report.getFailureCount() > packFailures) {
+        // a pack without the broken files would hide them on the next launch: they must be read (and reported) again
+        new File(AssetPack.PACK_PATH).delete();
+      } else {
+        start = System.nanoTime();
+        try {
+          AssetPack.write(assets, AssetPack.PACK_PATH);
+        } catch (IOException e) {
+          // the maps are decoded for the first time by the pack: a broken map is only found here
+          report.addFailure(AssetPack.PACK_PATH, e);
+          new File(AssetPack.PACK_PATH).delete();
+        }
+        report.addTime("pack write", System.nanoTime() - start);
+      }
+    }
+    checkConfigs(assets, report);
+    return assets;
+  }
+
+  /**
+   * Records the configs that name an obstacle that doesn't exist.
+   * Such an obstacle is never spawned: without a trace in the report, a map could be played without any obstacle.
+   * @param assets The resources of the game.
+   * @param report Where to record the unknown obstacles, once per config.
+   */
+  private static void checkConfigs(Assets assets, StartupReport report) {
+    for (String mapName : assets.configs.keySet()) {
+      HashSet<String> unknown = new HashSet<>();
+      for (ObstacleSpawn spawn : assets.configs.get(mapName).getSpawns()) {
+        if (!assets.obstacles.containsKey(spawn.getName()) && unknown.add(spawn.getName())) {
+          report.addFailure(CONFIGS_DIRECTORY + "/" + mapName + "-config.csv", new IOException("unknown obstacle \"" + spawn.getName() + "\""));
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads all the CSV files of the `assets` folder.
+   * Each file is decoded on its own, in parallel with the others,
+   * and the results are only put in the registries once they're all done.
+   * The maps are the exception: only their size is read, they're decoded when they're needed (see `MapCache`).
+   * A file that can't be read is skipped and recorded in the report.
+   * @param report Where to record the time spent on each file, and the failures.
+   * @return The resources of the game.
+   */
+  public static Assets fromCSV(StartupReport report) {
+    Assets assets = new Assets();
+    ExecutorService executor = Executors.newFixedThreadPool(LOADING_THREADS);
+    try {
+      ArrayList<String> colorsPath = new ArrayList<>();
+      colorsPath.add(COLORS_PATH);
+      ArrayList<Future<Color[]>> colors = submitAll(executor, report, "colors", colorsPath, (name, path) -> readColors(path));
+      ArrayList<String> obstaclePaths = getPaths(OBSTACLES_DIRECTORY);
+      ArrayList<Future<Obstacle>> obstacles = submitAll(executor, report, "obstacles", obstaclePaths, (name, path) -> new Obstacle(name, readMatrix(path)));
+      ArrayList<String> skinPaths = getPaths(SKINS_DIRECTORY);
+      ArrayList<Future<Raster>> skins = submitAll(executor, report, "skins", skinPaths, (name, path) -> readMatrix(path));
+      ArrayList<String> configPaths = getPaths(CONFIGS_DIRECTORY);
+      ArrayList<Future<MapSpawnConfig>> configs = submitAll(executor, report, "configs", configPaths, (name, path) -> MapSpawnConfig.fromCSV(path));
+      ArrayList<String> mapPaths = getPaths(MAPS_DIRECTORY);
+      ArrayList<Future<int[]>> mapSizes = submitAll(executor, report, "maps", mapPaths, (name, path) -> readMatrixSize(path));
+
+      collect(report, colorsPath, colors, (path, pallet) -> assets.colors = pallet);
+      collect(report, mapPaths, mapSizes, (path, size) -> assets.maps.register(getName(path), size[0], size[1], name -> new Map(name, readMatrix(path))));
+      collect(report, obstaclePaths, obstacles, (path, obstacle) -> assets.obstacles.put(obstacle.getName(), obstacle));
+      collect(report, skinPaths, skins, (path, skin) -> assets.skins.put(getName(path), skin));
+      // the config of a map is named after the map: "desert-config.csv"
+      collect(report, configPaths, configs, (path, config) -> assets.configs.put(getName(path).substring(0, getName(path).indexOf("-")), config));
+    } finally {
+      executor.shutdown();
+    }
+    return assets;
+  }
+
+  /**
+   * Something that decodes a single file.
+   */
+  private interface FileDecoder<T> {
+    T decode(String name, String path) throws Exception;
+  }
+
+  /**
+   * Starts decoding files in parallel.
+   * @param executor The threads on which the files are decoded.
+   * @param report Where to record the time spent on each file.
+   * @param phase The name of the phase in the report.
+   * @param paths The paths to the files.
+   * @param decoder How to decode one file.
+   * @return The result of each file, in the same order as `paths`.
+   */
+  private static <T> ArrayList<Future<T>> submitAll(ExecutorService executor, StartupReport report, String phase, ArrayList<String> paths, FileDecoder<T> decoder) {
+    ArrayList<Future<T>> results = new ArrayList<>();
+    for (String path : paths) {
+      results.add(executor.submit(() -> {
+        long start = System.nanoTime();
+        try {
+          return decoder.decode(getName(path), path);
+        } finally {
+          report.addTime(phase, System.nanoTime() - start);
+        }
+      }));
+    }
+    return results;
+  }
+
+  /**
+   * Waits for files to be decoded, and puts the results in a registry.
+   * This is done by a single thread, so the registries don't need to be thread-safe.
+   * @param report Where to record the files that couldn't be decoded.
+   * @param paths The paths to the files.
+   * @param results The result of each file, in the same order as `paths`.
+   * @param registry What to do with each result.
+   */
+  private static <T> void collect(StartupReport report, ArrayList<String> paths, ArrayList<Future<T>> results, BiConsumer<String, T> registry) {
+    for (int i = 0; i < paths.size(); i++) {
+      try {
+        registry.accept(paths.get(i), results.get(i).get());
+      } catch (ExecutionException e) {
+        report.addFailure(paths.get(i), e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Gets the paths to all the files of a folder.
+   * @param directory The path to the folder.
+   * @return The path to each file.
+   */
+  private static ArrayList<String> getPaths(String directory) {
+    ArrayList<String> paths = new ArrayList<>();
+    for (String file : Utils.getAllFilesFromDirectory(directory)) {
+      paths.add(directory + "/" + file);
+    }
+    return paths;
+  }
+
+  /**
+   * Gets the name of a resource from the path to its file ("assets/maps/desert.csv" gives "desert").
+   * @param path The path to the file.
+   * @return The name of the file, without its extension.
+   */
+  private static String getName(String path) {
+    return Utils.removeFileExtension(new File(path).getName());
+  }
+
+  /**
+   * Reads a file containing all the colors and metadata associated with them.
+   * Each color has one metadata called "x".
+   * If "x" is set `true` then it means the user can walk on it.
+   * For obstacles, this variable will be `false`.
+   *
+   * The pallet is stored in an array, so that a color is found directly from its index.
+   * @param path The path to the CSV file.
+   * @return The pallet.
+   */
+  private static Color[] readColors(String path) throws IOException {
+    try (CsvTokenizer csv = CsvTokenizer.open(path)) {
+      csv.nextRow(); // voluntarily ignoring the header
+      Color[] colors = new Color[32];
+      int count = 0;
+      while (csv.nextRow()) {
+        int x = csv.nextInt();
+        int r = csv.nextInt();
+        int g = csv.nextInt();
+        int b = csv.nextInt();
+        if (count == colors.length) {
+          colors = Arrays.copyOf(colors, count * 2);
+        }
+        colors[count++] = new Color(new int[]{r,g,b}, x == 1);
+      }
+      return Arrays.copyOf(colors, count); // the index of a color is its position in the pallet
+    }
+  }
+
+  /**
+   * Reads the CSV file of a matrix.
+   * @param path The path to the CSV file.
+   * @return The matrix.
+   * @throws IOException If the file can't be read, or if a value isn't an integer.
+   */
+  public static Raster readMatrix(String path) throws IOException {
+    try (CsvTokenizer csv = CsvTokenizer.open(path)) {
+      return readMatrix(csv);
+    }
+  }
+
+  /**
+   * Reads the size of the matrix of a CSV file, without decoding it:
+   * the values of the first line are counted, and the other lines are skipped.
+   * @param path The path to the CSV file.
+   * @return The width and the height of the matrix, as `readMatrix` would decode it.
+   * @throws IOException If the file can't be read.
+   */
+  static int[] readMatrixSize(String path) throws IOException {
+    try (CsvTokenizer csv = CsvTokenizer.open(path)) {
+      csv.nextRow(); // voluntarily ignoring the header
+      if (!csv.nextRow()) {
+        return new int[]{ 0, 0 };
+      }
+      int width = 0;
+      while (csv.hasNextValue()) {
+        csv.nextString();
+        width++;
+      }
+      int height = 1;
+      while (csv.nextRow()) {
+        height++;
+      }
+      return new int[]{ width, height };
+    }
+  }
+
+  /**
+   * Reads a matrix of integers (the grid of a colored element on the map).
+   * Useful to get the style of an obstacle, a map and a player skin.
+   * Each integer is the index of a color in the pallet, or -1 for a transparent pixel.
+   * Since the pixels are stored in bytes, an index must be below 128.
+   *
+   * Note that the header is ignored.
+   * The width of the matrix is the number of integers on its first line:
+   * shorter lines are completed with the first color, longer lines are cut.
+   * @param csv The tokenizer of the CSV file containing the matrix.
+   * @return The matrix, stored in a single array.
+   * @throws IOException If a value isn't an integer between -1 and 127 (the error gives its position).
+   */
+  static Raster readMatrix(CsvTokenizer csv) throws IOException {
+    csv.nextRow(); // voluntarily ignoring the header
+    if (!csv.nextRow()) {
+      return new Raster(0, 0);
+    }
+    // the first line is read on its own to know the width
+    byte[] pixels = new byte[64];
+    int width = 0;
+    while (csv.hasNextValue()) {
+      if (width == pixels.length) {
+        pixels = Arrays.copyOf(pixels, width * 2);
+      }
+      pixels[width++] = (byte)csv.nextInt(-1, Byte.MAX_VALUE);
+    }
+    pixels = Arrays.copyOf(pixels, width * 16);
+    int height = 1;
+    while (csv.nextRow()) {
+      if ((height + 1) * width > pixels.length) {
+        pixels = Arrays.copyOf(pixels, pixels.length * 2);
+      }
+      int start = height * width;
+      for (int col = 0; csv.hasNextValue(); col++) {
+        int value = csv.nextInt(-1, Byte.MAX_VALUE);
+        if (col < width) {
+          pixels[start + col] = (byte)value;
+        }
+      }
+      height++;
+    }
+    return new Raster(width, height, width, Arrays.copyOf(pixels, width * height));
+  }
+
+  public Color[] getColors() { return this.colors; }
+  public MapCache getMaps() { return this.maps; }
+  public HashMap<String, Obstacle> getObstacles() { return this.obstacles; }
+  public HashMap<String, Raster> getSkins() { return this.skins; }
+  public HashMap<String, MapSpawnConfig> getConfigs() { return this.configs; }
+}
@@ -0,0 +1,158 @@
+package main.java;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * The background of a map, already encoded for the console, line by line.
+ *
+ * Each line is stored the way `Renderer` would write it entirely:
+ * the color of a run of cells is written once, at the beginning of the run, followed by a space per cell.
+ * The index of the first byte of each cell is kept,
+ * so that the cells from `x1` to `x2` are a slice of the line that can be written as it is.
+ * It's built once, when a map is selected,
+ * so the cells that show the background again after a sprite moved don't need to be encoded.
+ * When the camera moves, the lines are shifted where they are, and only the columns that appear are encoded.
+ */
+public class BackgroundCache {
+  private final int width;
+  private final int height;
+
+  /**
+   * The color index of each cell of the background, line by line.
+   */
+  private final short[] cells;
+
+  /**
+   * The encoded lines. An array can be longer than its line, the length of the line is `offsets[y][width]`.
+   */
+  private final byte[][] lines;
+
+  private final IntFunction<byte[]> colorSequences;
+  private final byte cell;
+
+  /**
+   * For each line, the index in `lines[y]` of the first byte of each cell (`width + 1` values:
+   * the last one is the length of the line).
+   * The first byte of a cell is its color if it starts a run, otherwise it's its space.
+   */
+  private final int[][] offsets;
+
+  /**
+   * Encodes a background.
+   * @param background The background.
+   * @param colorSequences The ANSI sequence of each color index (including `FrameBuffer.TRANSPARENT`).
+   * @param cell The character of a cell.
+   */
+  public BackgroundCache(FrameBuffer background, IntFunction<byte[]> colorSequences, byte cell) {
+    this.width = background.getWidth();
+    this.height = background.getHeight();
+    this.colorSequences = colorSequences;
+    this.cell = cell;
+    this.cells = Arrays.copyOf(background.getCells(), width * height);
+    this.lines = new byte[height][];
+    this.offsets = new int[height][width + 1];
+    for (int y = 0; y < height; y++) {
+      int length = 0;
+      for (int x = 0; x < width; x++) {
+        short colorIndex = cells[y * width + x];
+        if (x == 0 || colorIndex != cells[y * width + x - 1]) {
+          length += colorSequences.apply(colorIndex).length;
+        }
+        length++;
+      }
+      byte[] line = new byte[length];
+      int position = 0;
+      for (int x = 0; x < width; x++) {
+        short colorIndex = cells[y * width + x];
+        offsets[y][x] = position;
+        if (x == 0 || colorIndex != cells[y * width + x - 1]) {
+          byte[] sequence = colorSequences.apply(colorIndex);
+          System.arraycopy(sequence, 0, line, position, sequence.length);
+          position += sequence.length;
+        }
+        line[position++] = cell;
+      }
+      offsets[y][width] = position;
+      lines[y] = line;
+    }
+  }
+
+  /**
+   * Follows the background after it was shifted to the left (see `Viewport`):
+   * the cells that are still visible are moved in each line, and only the new cells on the right are encoded.
+   * @param background The background, already shifted (with the same dimensions).
+   * @param shift The number of cells it was shifted by (less than its width).
+   */
+  public void scroll(FrameBuffer background, int shift) {
+    System.arraycopy(background.getCells(), 0, cells, 0, cells.length);
+    int kept = width - shift;
+    for (int y = 0; y < height; y++) {
+      int[] offset = offsets[y];
+      int row = y * width;
+      // the first cell that stays needs its color, unless it already started a run
+      boolean startsRun = offset[shift + 1] - offset[shift] > 1;
+      byte[] prefix = startsRun ? null : colorSequences.apply(cells[row]);
+      int prefixLength = prefix == null ? 0 : prefix.length;
+      int start = offset[shift];
+      int keptLength = offset[width] - start;
+      int length = prefixLength + keptLength;
+      for (int x = kept; x < width; x++) {
+        if (cells[row + x] != cells[row + x - 1]) {
+          length += colorSequences.apply(cells[row + x]).length;
+        }
+        length++;
+      }
+      if (length > lines[y].length) {
+        lines[y] = Arrays.copyOf(lines[y], length + length / 2); // rarely: only when the new runs are longer
+      }
+      byte[] line = lines[y];
+      System.arraycopy(line, start, line, prefixLength, keptLength);
+      if (prefix != null) {
+        System.arraycopy(prefix, 0, line, 0, prefixLength);
+      }
+      offset[0] = 0;
+      for (int x = 1; x < kept; x++) {
+        offset[x] = offset[x + shift] - start + prefixLength;
+      }
+      int position = prefixLength + keptLength;
+      for (int x = kept; x < width; x++) {
+        offset[x] = position;
+        if (cells[row + x] != cells[row + x - 1]) {
+          byte[] sequence = colorSequences.apply(cells[row + x]);
+          System.arraycopy(sequence, 0, line, position, sequence.length);
+          position += sequence.length;
+        }
+        line[position++] = cell;
+      }
+      offset[width] = position;
+    }
+  }
+
+  /**
+   * Gets the index of the space of a cell in its line.
+   * From there, the bytes of the line draw this cell and the next ones (with their colors),
+   * as long as the console already uses the color of this cell.
+   * @param x The X-coordinate of the cell.
+   * @param y The Y-coordinate of the cell.
+   * @return The index in `getLine(y)`.
+   */
+  public int getCellOffset(int x, int y) {
+    return offsets[y][x + 1] - 1;
+  }
+
+  /**
+   * Gets the index of the first byte after a cell in its line.
+   * @param x The X-coordinate of the cell.
+   * @param y The Y-coordinate of the cell.
+   * @return The index in `getLine(y)`.
+   */
+  public int getEndOffset(int x, int y) {
+    return offsets[y][x + 1];
+  }
+
+  public byte[] getLine(int y) { return this.lines[y]; }
+  public short[] getCells() { return this.cells; }
+  public int getWidth() { return this.width; }
+  public int getHeight() { return this.height; }
+}
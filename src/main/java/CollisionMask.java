@@ -0,0 +1,101 @@
+package main.java;
+
+/**
+ * The opaque pixels of a sprite, stored as bits so that two sprites can be compared 64 cells at a time.
+ *
+ * Each row of the sprite is a sequence of `long`: the bit `i` of the word `w` is the cell `w * 64 + i`.
+ * A cell is set if the pixel it belongs to isn't transparent.
+ * The mask is made of cells (characters of the console) and not of pixels,
+ * because the obstacles move one character at a time.
+ *
+ * The box around the opaque cells is also kept,
+ * so that two sprites that are far from each other are rejected without looking at their bits.
+ */
+public class CollisionMask {
+  private final int width;
+  private final int height;
+
+  /**
+   * The number of `long` in each row.
+   */
+  private final int words;
+  private final long[] bits;
+
+  // the box around the opaque cells (the mask is empty if `minX > maxX`)
+  private int minX = Integer.MAX_VALUE;
+  private int maxX = Integer.MIN_VALUE;
+  private int minY = Integer.MAX_VALUE;
+  private int maxY = Integer.MIN_VALUE;
+
+  /**
+   * Computes the mask of a sprite.
+   * @param matrix The sprite.
+   * @param pixelSize The number of cells of a pixel on the X-axis.
+   */
+  public CollisionMask(Raster matrix, int pixelSize) {
+    this.width = matrix.getWidth() * pixelSize;
+    this.height = matrix.getHeight();
+    this.words = (width + 63) >>> 6;
+    this.bits = new long[words * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        if (matrix.get(x / pixelSize, y) != Raster.TRANSPARENT) {
+          bits[y * words + (x >>> 6)] |= 1L << (x & 63);
+          minX = Math.min(minX, x);
+          maxX = Math.max(maxX, x);
+          minY = Math.min(minY, y);
+          maxY = Math.max(maxY, y);
+        }
+      }
+    }
+  }
+
+  /**
+   * Does this sprite touch another one?
+   * @param other The other sprite.
+   * @param dx The position of the other sprite on the X-axis, relative to this one (in cells).
+   * @param dy The position of the other sprite on the Y-axis, relative to this one.
+   * @return `true` if an opaque cell of a sprite is on an opaque cell of the other.
+   */
+  public boolean overlaps(CollisionMask other, int dx, int dy) {
+    int fromX = Math.max(minX, other.minX + dx);
+    int toX = Math.min(maxX, other.maxX + dx);
+    int fromY = Math.max(minY, other.minY + dy);
+    int toY = Math.min(maxY, other.maxY + dy);
+    if (fromX > toX || fromY > toY) {
+      return false;
+    }
+    int fromWord = fromX >>> 6;
+    int toWord = toX >>> 6;
+    for (int y = fromY; y <= toY; y++) {
+      int row = y * words;
+      int otherRow = (y - dy) * other.words;
+      for (int w = fromWord; w <= toWord; w++) {
+        if ((bits[row + w] & other.getWord(otherRow, (w << 6) - dx)) != 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets 64 cells of a row, starting from any cell (even outside of the mask).
+   * @param row The index of the first word of the row in `bits`.
+   * @param start The first cell.
+   * @return The cells `start` to `start + 63`, in the same order as in a word.
+   */
+  private long getWord(int row, int start) {
+    int word = Math.floorDiv(start, 64);
+    int shift = Math.floorMod(start, 64);
+    long low = word >= 0 && word < words ? bits[row + word] : 0;
+    if (shift == 0) {
+      return low;
+    }
+    long high = word + 1 >= 0 && word + 1 < words ? bits[row + word + 1] : 0;
+    return (low >>> shift) | (high << (64 - shift));
+  }
+
+  public int getWidth() { return this.width; }
+  public int getHeight() { return this.height; }
+}
@@ -1,5 +1,7 @@
 package main.java;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Represents a pixel in the game.
  * Cannot be transparent.
@@ -10,14 +12,32 @@ public class Color {
    */
   String ANSI;
 
+  /**
+   * ANSI format of the color, already encoded,
+   * so that it can be written to the console as is.
+   */
+  byte[] ANSI_BYTES;
+
   /**
    * Can the user walk on this color?
    * By default it is `true` for all colors, but if you want to make a wall, then set it to `false`.
    */
   boolean x = true;
 
+  /**
+   * The RGB format of the color (3 numbers between 0 and 255),
+   * or `null` if the color was created directly from its ANSI format.
+   */
+  int[] rgb = null;
+
+  public Color(int[] rgb, boolean x) {
+    this(Utils.RGBToANSI(rgb, true), x);
+    this.rgb = rgb;
+  }
+
   public Color(String ansi, boolean x) {
     this.ANSI = ansi;
+    this.ANSI_BYTES = ansi.getBytes(StandardCharsets.US_ASCII);
     this.x = x;
   }
 }
\ No newline at end of file
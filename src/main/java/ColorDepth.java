@@ -0,0 +1,205 @@
+package main.java;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The colors the console can display, from the most precise (and the longest to write) to the least.
+ *
+ * In truecolor, a color change is about 19 bytes (`ESC[48;2;r;g;bm`).
+ * The indexed modes write an index instead (`ESC[48;5;nm` or `ESC[4nm`),
+ * which is shorter, and faster for the consoles and the multiplexers that are slow with truecolor, or don't support it.
+ * The colors of the pallet are then replaced by the closest indexed colors,
+ * according to their distance in the CIELAB space (close to the way the eye perceives the differences).
+ */
+public enum ColorDepth {
+  TRUECOLOR("truecolor"),
+  XTERM_256("256"),
+  ANSI_16("16");
+
+  /**
+   * The 16 colors of the ANSI mode, as xterm displays them (the other consoles are usually close).
+   */
+  private static final int[][] ANSI_16_RGB = {
+    {0, 0, 0}, {205, 0, 0}, {0, 205, 0}, {205, 205, 0}, {0, 0, 238}, {205, 0, 205}, {0, 205, 205}, {229, 229, 229},
+    {127, 127, 127}, {255, 0, 0}, {0, 255, 0}, {255, 255, 0}, {92, 92, 255}, {255, 0, 255}, {0, 255, 255}, {255, 255, 255}
+  };
+
+  /**
+   * The levels of each component in the 6x6x6 cube of the xterm-256 mode.
+   */
+  private static final int[] CUBE_LEVELS = {0, 95, 135, 175, 215, 255};
+
+  /**
+   * The name given with `--colors=<name>`.
+   */
+  private final String name;
+
+  private ColorDepth(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets the mode from its name.
+   * @param name `truecolor`, `256` or `16`.
+   * @return The mode, or `null` if the name is unknown.
+   */
+  public static ColorDepth fromName(String name) {
+    for (ColorDepth depth : values()) {
+      if (depth.name.equals(name)) {
+        return depth;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Guesses the mode of the console from the environment.
+   * @return The mode of the console.
+   */
+  public static ColorDepth detect() {
+    return detect(System.getenv("COLORTERM"), System.getenv("TERM"));
+  }
+
+  /**
+   * Guesses the mode of a console from the usual environment variables.
+   * The consoles that support truecolor announce it in `COLORTERM`, the others give their name in `TERM`.
+   * Without any of them (on Windows for example), truecolor is assumed, as it always was.
+   * The `*-direct` terminfo entries are the truecolor variants of the usual ones.
+   * @param colorTerm The value of `COLORTERM`, or `null`.
+   * @param term The value of `TERM`, or `null`.
+   * @return The mode of the console.
+   */
+  public static ColorDepth detect(String colorTerm, String term) {
+    if (colorTerm != null && (colorTerm.equals("truecolor") || colorTerm.equals("24bit"))) {
+      return TRUECOLOR;
+    }
+    if (term == null || term.isEmpty() || term.endsWith("-direct")) {
+      return TRUECOLOR;
+    }
+    if (term.contains("256color")) {
+      return XTERM_256;
+    }
+    return ANSI_16;
+  }
+
+  /**
+   * Encodes the ANSI sequence that gives a color to the background of the next cells.
+   * @param rgb The color (3 numbers between 0 and 255).
+   * @return The sequence, in the closest color this mode has.
+   */
+  public byte[] encode(int[] rgb) {
+    return encode(rgb, true);
+  }
+
+  /**
+   * Encodes the ANSI sequence that gives a color to the next cells.
+   * @param rgb The color (3 numbers between 0 and 255).
+   * @param backgroundColor Is it the color of the background (instead of the color of the characters)?
+   * @return The sequence, in the closest color this mode has.
+   */
+  public byte[] encode(int[] rgb, boolean backgroundColor) {
+    String ansi;
+    switch (this) {
+      case XTERM_256:
+        ansi = "\u001b[" + (backgroundColor ? "48" : "38") + ";5;" + getNearest256(rgb) + "m";
+        break;
+      case ANSI_16:
+        int index = getNearest16(rgb);
+        int base = backgroundColor ? 40 : 30;
+        ansi = "\u001b[" + (index < 8 ? base + index : base + 60 + index - 8) + "m";
+        break;
+      default:
+        ansi = Utils.RGBToANSI(rgb, backgroundColor);
+    }
+    return ansi.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Finds the closest color of the xterm-256 mode.
+   * The 16 first ones are skipped, since each console (and each theme) displays them differently.
+   * @param rgb The color.
+   * @return The index of the color, between 16 and 255.
+   */
+  public static int getNearest256(int[] rgb) {
+    double[] lab = toLab(rgb);
+    int nearest = 16;
+    double nearestDistance = Double.MAX_VALUE;
+    for (int index = 16; index < 256; index++) {
+      double distance = getDistance(lab, toLab(get256RGB(index)));
+      if (distance < nearestDistance) {
+        nearest = index;
+        nearestDistance = distance;
+      }
+    }
+    return nearest;
+  }
+
+  /**
+   * Finds the closest color of the ANSI mode.
+   * @param rgb The color.
+   * @return The index of the color, between 0 and 15.
+   */
+  public static int getNearest16(int[] rgb) {
+    double[] lab = toLab(rgb);
+    int nearest = 0;
+    double nearestDistance = Double.MAX_VALUE;
+    for (int index = 0; index < ANSI_16_RGB.length; index++) {
+      double distance = getDistance(lab, toLab(ANSI_16_RGB[index]));
+      if (distance < nearestDistance) {
+        nearest = index;
+        nearestDistance = distance;
+      }
+    }
+    return nearest;
+  }
+
+  /**
+   * Gets the RGB format of a color of the xterm-256 mode, from the cube or the grays.
+   * @param index The index of the color, between 16 and 255.
+   * @return The color (3 numbers between 0 and 255).
+   */
+  public static int[] get256RGB(int index) {
+    if (index >= 232) {
+      int gray = 8 + (index - 232) * 10;
+      return new int[]{ gray, gray, gray };
+    }
+    int cube = index - 16;
+    return new int[]{ CUBE_LEVELS[cube / 36], CUBE_LEVELS[cube / 6 % 6], CUBE_LEVELS[cube % 6] };
+  }
+
+  /**
+   * Converts an sRGB color to the CIELAB space (with the D65 white).
+   * @param rgb The color (3 numbers between 0 and 255).
+   * @return The L, a and b components.
+   */
+  private static double[] toLab(int[] rgb) {
+    double r = toLinear(rgb[0]);
+    double g = toLinear(rgb[1]);
+    double b = toLinear(rgb[2]);
+    double x = labCurve((0.4124 * r + 0.3576 * g + 0.1805 * b) / 0.95047);
+    double y = labCurve(0.2126 * r + 0.7152 * g + 0.0722 * b);
+    double z = labCurve((0.0193 * r + 0.1192 * g + 0.9505 * b) / 1.08883);
+    return new double[]{ 116 * y - 16, 500 * (x - y), 200 * (y - z) };
+  }
+
+  private static double toLinear(int component) {
+    double c = component / 255.0;
+    return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+  }
+
+  private static double labCurve(double t) {
+    return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+  }
+
+  /**
+   * The squared distance between two colors in the CIELAB space (the order is the same as the real distance).
+   */
+  private static double getDistance(double[] first, double[] second) {
+    double l = first[0] - second[0];
+    double a = first[1] - second[1];
+    double b = first[2] - second[2];
+    return l * l + a * a + b * b;
+  }
+
+  public String getName() { return this.name; }
+}
@@ -1,8 +1,8 @@
 package main.java;
 
-import java.io.Console;
 import java.io.IOException;
-import java.io.Reader;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Allows our code to actually detect the key inputs instead of writing them in the standard input.
@@ -13,7 +13,7 @@ public class Controls {
    * If the console is listening to key inputs from the console, then this is `true`.
    * By default, it will be `false`.
    */
-  private boolean listeningConsole = false;
+  private volatile boolean listeningConsole = false;
 
   /**
    * The thread listening to the key inputs, when `listeningConsole` is `true`.
@@ -21,57 +21,54 @@ public class Controls {
    */
   private Thread keyboardListener;
 
+  /**
+   * Is the console in raw mode (see `enableRawMode()`)?
+   */
+  private boolean rawMode = false;
+
+  /**
+   * The keys read by `keyboardListener` that weren't handled yet, from the oldest to the most recent.
+   * The listener only adds events to this queue: it never writes in the console, and it never modifies the game:
+   * the keys are handled by the thread that polls them (see `pollKeyEvent()`).
+   */
+  private final ConcurrentLinkedQueue<KeyEvent> keyEvents = new ConcurrentLinkedQueue<>();
+
   /**
    * In order to detect the actual key presses of the user, without writing any of them, 
    * then this function needs to be called with `newState` set to `true`.
    * Disable this behaviour by using the same function, but with `newState` set to `false`.
+   * 
+   * The listener blocks on the standard input until the user types something,
+   * so a key is published as soon as it's typed, and several keys typed at once are all read together.
+   * When a read ends with an escape, the listener waits a little for the rest of the sequence (see `KeyDecoder`).
    * @param newState Whether or not you want the terminal to be used as a detector of key presses.
    */
   protected void enableKeyTypedInConsole(boolean newState) {
     if (!listeningConsole && newState) {
+      enableRawMode();
       listeningConsole = true;
-      keyboardListener = new Thread() {
+      keyboardListener = new Thread("keyboard-listener") {
         public void run() {
           try {
-            String[] commands = new String[] { "/bin/sh", "-c", "stty raw </dev/tty" };
-            Runtime.getRuntime().exec(commands).waitFor();
-            Console console = System.console();
-            Reader reader;
-
-            for (reader = console.reader(); listeningConsole; Thread.sleep(100L)) {
-              int keyInput = reader.read();
-              if (keyInput == 27) { // Escape key
-                keyInput = reader.read();
-                if (keyInput == 91) { // Meta
-                  keyInput = reader.read();
-                  switch (keyInput) {
-                    case 65:
-                      keyTypedInConsole(17); // top arrow key
-                      break;
-                    case 66:
-                      keyTypedInConsole(18); // bottom arrow key
-                      break;
-                    case 67:
-                      keyTypedInConsole(20); // left arrow key
-                      break;
-                    case 68:
-                      keyTypedInConsole(19); // right arrow key
-                  }
-                }
-              } else {
-                keyTypedInConsole(keyInput);
+            KeyDecoder decoder = new KeyDecoder(keyEvents::add);
+            byte[] buffer = new byte[64];
+            int length;
+            while (listeningConsole && (length = System.in.read(buffer)) > 0) {
+              decoder.decode(buffer, length, System.nanoTime());
+              if (decoder.isEscapePending() && !awaitInput(KeyDecoder.ESCAPE_DELAY)) {
+                decoder.endEscape(); // nothing followed it: Escape was typed alone
               }
             }
-
-            reader.close();
-          } catch (InterruptedException | IOException e) {
+          } catch (IOException e) {
             e.printStackTrace();
           }
         }
       };
+      keyboardListener.setDaemon(true); // it's blocked on the input, it mustn't prevent the game from being terminated
       keyboardListener.start();
     } else {
       listeningConsole = false;
+      rawMode = false;
 
       try {
         String[] commands = new String[] { "/bin/sh", "-c", "stty sane </dev/tty" };
@@ -83,15 +80,48 @@ public class Controls {
   }
 
   /**
-   * This function is meant to be overriden by any class inherited from `Controls`.
-   * This is called if `listeningConsole` is set to `true`.
+   * Switches the console to raw mode, on the calling thread, without listening to the keys yet:
+   * the keys aren't written any more, and neither are the answers of the console to the queries sent from now on.
+   * Those answers are read with the keys once `enableKeyTypedInConsole(true)` is called.
+   */
+  protected void enableRawMode() {
+    if (rawMode) {
+      return;
+    }
+    try {
+      String[] commands = new String[] { "/bin/sh", "-c", "stty raw </dev/tty" };
+      Runtime.getRuntime().exec(commands).waitFor();
+      rawMode = true;
+    } catch (InterruptedException | IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Waits for the console to send more bytes, without reading them.
+   * @param delay The maximum time to wait, in nanoseconds.
+   * @return `true` if some bytes can be read, `false` if none arrived in time.
+   */
+  private static boolean awaitInput(long delay) throws IOException {
+    long deadline = System.nanoTime() + delay;
+    while (System.in.available() == 0) {
+      if (System.nanoTime() >= deadline) {
+        return false;
+      }
+      LockSupport.parkNanos(1_000_000);
+    }
+    return true;
+  }
+
+  /**
+   * Gets the oldest key that was typed and that wasn't handled yet.
+   * Keys are only published if `listeningConsole` is set to `true`.
    * In order to set it to true, use `enableKeyTypedInConsole()`.
-   * 
-   * This function will be executed each time the user enters a key.
-   * The key itself won't be displayed in the standard input.
-   * @param keyCode The unique key code of the pressed key (an integer).
+   * @return The key, or `null` if no key is waiting.
    */
-  protected void keyTypedInConsole(int keyCode) { }
+  protected KeyEvent pollKeyEvent() {
+    return keyEvents.poll();
+  }
 
   /**
    * Allows the program to sleep for a while.
@@ -109,22 +139,15 @@ public class Controls {
    * @param y The coordinates on the Y-axis
    */
   protected void moveCursorTo(int x, int y) {
-    System.out.print("\033[" + y + ";" + x + "H");
+    Terminal.moveCursorTo(x, y);
   }
 
   /**
-   * Deletes everything there is on the console, if it's visible.
+   * Deletes everything there is on the console, with a single sequence (see `Screen`).
    * It also adds an empty line at the beginning.
    */
   protected void clearMyScreen() {
-    // This doesn't work:
-    //System.out.print("\033[2J");
-    //moveCursorTo(0,0);
-    // Desperate solution:
-    for (int i = 80; i >= 0; i--) {
-      moveCursorTo(0, i);
-      System.out.print(" ".repeat(200));
-    }
+    Screen.clear();
     println("");
   }
 
@@ -133,14 +156,14 @@ public class Controls {
    * The cursor will be directed to this position when `restoredCursorPosition` is called.
    */
   protected void saveCursorPosition() {
-    System.out.print("\033[s");
+    Terminal.print("\033[s");
   }
 
   /**
    * The cursor goes back to its previously saved position.
    */
   protected void restoreCursorPosition() {
-    System.out.print("\033[u");
+    Terminal.print("\033[u");
   }
 
   /**
@@ -149,6 +172,7 @@ public class Controls {
    * and as a consequence, when printing text onto the console, it creates a `staircase effect`.
    * 
    * This method must be used instead of the traditional `System.out.println()`.
+   * Like everything written through `Terminal`, the content is only visible once `Terminal.flush()` is called.
    * 
    * More info here on
    * <a href="https://unix.stackexchange.com/a/366426">stackexchange</a>.
@@ -156,6 +180,6 @@ public class Controls {
    * @param content The content to be printed.
    */
   protected static void println(String content) {
-    System.out.print("\r" + content + "\r\n");
+    Terminal.print("\r" + content + "\r\n");
   }
 }
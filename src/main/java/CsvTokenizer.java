@@ -0,0 +1,257 @@
+package main.java;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a CSV file one value at a time, straight from its bytes.
+ *
+ * The integers are parsed as they're read, so nothing is allocated for them
+ * (no line, no string and no boxed integer).
+ * Only the text values (`nextString()`) create a string.
+ *
+ * The position of the tokenizer is given by a row (the line in the file, starting at 1)
+ * and a column (the position of the value in the row, starting at 1),
+ * so that an error tells exactly which value is wrong (and in which file, if it was opened with `open()`).
+ *
+ * Usage:
+ * ```
+ * tokenizer.nextRow(); // the header
+ * while (tokenizer.nextRow()) {
+ *   while (tokenizer.hasNextValue()) {
+ *     int value = tokenizer.nextInt();
+ *   }
+ * }
+ * ```
+ */
+public class CsvTokenizer implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int EOF = -1;
+
+  private final InputStream in;
+  private final byte delimiter;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position = 0;
+  private int limit = 0;
+
+  /**
+   * Used to read the text values.
+   */
+  private byte[] text = new byte[32];
+
+  private int row = 0;
+  private int column = 0;
+
+  /**
+   * The path of the file, given in the errors, or `null` if it isn't a file.
+   */
+  private String path = null;
+
+  /**
+   * Has the last value of the current row been read?
+   */
+  private boolean endOfRow = true;
+
+  /**
+   * Has the line break at the end of the current row been read?
+   */
+  private boolean endOfLine = true;
+
+  public CsvTokenizer(InputStream in, char delimiter) {
+    this.in = in;
+    this.delimiter = (byte)delimiter;
+  }
+
+  public CsvTokenizer(InputStream in) {
+    this(in, ',');
+  }
+
+  /**
+   * Opens a CSV file.
+   * @param path The path to the CSV file.
+   * @return The tokenizer, to close once the file has been read.
+   * @throws IOException If the file can't be opened.
+   */
+  public static CsvTokenizer open(String path) throws IOException {
+    CsvTokenizer tokenizer = new CsvTokenizer(new FileInputStream(path));
+    tokenizer.path = path;
+    return tokenizer;
+  }
+
+  /**
+   * Gets the next byte of the file.
+   * @return The byte, or `EOF` at the end of the file.
+   */
+  private int read() throws IOException {
+    if (position == limit) {
+      limit = in.read(buffer, 0, BUFFER_SIZE);
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return EOF;
+      }
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  /**
+   * Moves to the beginning of the next row, skipping what's left of the current one.
+   * Empty lines are skipped too.
+   * @return `false` if there's no row left.
+   */
+  public boolean nextRow() throws IOException {
+    int c;
+    if (!endOfLine) {
+      do {
+        c = read();
+      } while (c != '\n' && c != EOF);
+      if (c == EOF) {
+        endOfRow = true;
+        return false;
+      }
+    }
+    row++;
+    while (true) {
+      c = read();
+      if (c == EOF) {
+        endOfRow = true;
+        endOfLine = true;
+        return false;
+      }
+      if (c == '\n') {
+        row++;
+      } else if (c != '\r') {
+        break;
+      }
+    }
+    position--; // the first byte of the row belongs to its first value
+    column = 1;
+    endOfRow = false;
+    endOfLine = false;
+    return true;
+  }
+
+  /**
+   * Is there a value left in the current row?
+   * @return `true` if `nextInt()` or `nextString()` can be called.
+   */
+  public boolean hasNextValue() {
+    return !endOfRow;
+  }
+
+  /**
+   * Reads the next value of the current row as an integer.
+   * @return The integer.
+   * @throws IOException If there's no value left in the row, or if the value isn't an integer.
+   */
+  public int nextInt() throws IOException {
+    if (endOfRow) {
+      throw missingValue();
+    }
+    int c = read();
+    boolean negative = c == '-';
+    if (negative) {
+      c = read();
+    }
+    if (c < '0' || c > '9') {
+      throw error(c == delimiter || c == '\n' || c == '\r' || c == EOF ? "empty value" : "unexpected character '" + (char)c + "'");
+    }
+    long value = 0;
+    do {
+      value = value * 10 + (c - '0');
+      if (value > Integer.MAX_VALUE + 1L) {
+        throw error("integer too big");
+      }
+      c = read();
+    } while (c >= '0' && c <= '9');
+    if (!negative && value > Integer.MAX_VALUE) {
+      throw error("integer too big");
+    }
+    endValue(c);
+    return (int)(negative ? -value : value);
+  }
+
+  /**
+   * Reads the next value of the current row as an integer, which must be within some bounds.
+   * @param min The smallest value allowed.
+   * @param max The largest value allowed.
+   * @return The integer.
+   * @throws IOException If there's no value left in the row, if the value isn't an integer, or if it's out of bounds.
+   */
+  public int nextInt(int min, int max) throws IOException {
+    int valueColumn = column;
+    int value = nextInt();
+    if (value < min || value > max) {
+      column = valueColumn; // the delimiter after the value may have been read already
+      throw error(value + " isn't between " + min + " and " + max);
+    }
+    return value;
+  }
+
+  /**
+   * Reads the next value of the current row as text.
+   * @return The text.
+   * @throws IOException If there's no value left in the row, or if the value is empty.
+   */
+  public String nextString() throws IOException {
+    if (endOfRow) {
+      throw missingValue();
+    }
+    int length = 0;
+    int c = read();
+    while (c != delimiter && c != '\n' && c != '\r' && c != EOF) {
+      if (length == text.length) {
+        text = Arrays.copyOf(text, length * 2);
+      }
+      text[length++] = (byte)c;
+      c = read();
+    }
+    if (length == 0) {
+      throw error("empty value");
+    }
+    String value = new String(text, 0, length, StandardCharsets.UTF_8);
+    endValue(c);
+    return value;
+  }
+
+  /**
+   * Reads what comes after a value: a delimiter or the end of the row.
+   * @param c The first byte after the value.
+   */
+  private void endValue(int c) throws IOException {
+    if (c == delimiter) {
+      column++;
+      return;
+    }
+    endOfRow = true;
+    if (c == '\r') {
+      c = read();
+    }
+    if (c == '\n' || c == EOF) {
+      endOfLine = true;
+      return;
+    }
+    throw error("unexpected character '" + (char)c + "'");
+  }
+
+  private IOException missingValue() {
+    column++; // the value that should have been there
+    return error("missing value");
+  }
+
+  private IOException error(String message) {
+    return new IOException((path != null ? path + ", " : "") + "row " + row + ", column " + column + ": " + message);
+  }
+
+  public int getRow() { return this.row; }
+  public int getColumn() { return this.column; }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
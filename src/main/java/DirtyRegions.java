@@ -0,0 +1,202 @@
+package main.java;
+
+import java.util.Arrays;
+
+/**
+ * The rectangles of a frame that must be drawn again because something moved in them.
+ *
+ * The sprites of each frame are given to `addSprite()`, then `update()` compares them with those of the previous frame:
+ * for each sprite that moved (or appeared, or disappeared),
+ * both its previous box (to erase it) and its new box (to draw it) are added.
+ * Rectangles that overlap are then merged, so that no cell is drawn twice,
+ * and so are the rectangles that continue each other exactly (the same lines side by side, or the same columns one above the other),
+ * so that the renderer goes through fewer rectangles without drawing more cells.
+ * Two rectangles that only touch are kept apart: the box around them would contain cells that didn't change
+ * (the lines of a scrolled frame, for example, each change over a different span).
+ * Everything outside of these rectangles is the same as in the previous frame.
+ */
+public class DirtyRegions {
+  private final int width;
+  private final int height;
+
+  // the rectangles, stored in arrays so that nothing is allocated on each frame
+  private int[] xs = new int[8];
+  private int[] ys = new int[8];
+  private int[] ws = new int[8];
+  private int[] hs = new int[8];
+  private int size = 0;
+
+  // the sprites of the previous frame and of the current one, with their box
+  private Object[] previousSprites = new Object[8];
+  private int[] previousBoxes = new int[8 * 4];
+  private int previousCount = 0;
+  private Object[] sprites = new Object[8];
+  private int[] boxes = new int[8 * 4];
+  private int count = 0;
+
+  /**
+   * @param width The width of the frame, the rectangles are cut to fit in it.
+   * @param height The height of the frame.
+   */
+  public DirtyRegions(int width, int height) {
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Forgets the rectangles (once the frame was rendered).
+   * The sprites of the frame are kept, to be compared with those of the next frame.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Declares a sprite drawn in the current frame.
+   * @param sprite The image of the sprite (two sprites are the same if they have the same image and the same box).
+   * @param x The X-coordinate of the top-left cell of the sprite.
+   * @param y The Y-coordinate of the top-left cell of the sprite.
+   * @param w The width of the sprite, in cells.
+   * @param h The height of the sprite.
+   */
+  public void addSprite(Object sprite, int x, int y, int w, int h) {
+    if (count == sprites.length) {
+      sprites = Arrays.copyOf(sprites, count * 2);
+      boxes = Arrays.copyOf(boxes, count * 2 * 4);
+    }
+    sprites[count] = sprite;
+    boxes[count * 4] = x;
+    boxes[count * 4 + 1] = y;
+    boxes[count * 4 + 2] = w;
+    boxes[count * 4 + 3] = h;
+    count++;
+  }
+
+  /**
+   * Adds the boxes of the sprites that changed since the previous frame, then merges the rectangles.
+   * A sprite that didn't move isn't added, unless a rectangle touches it (it's then drawn again anyway).
+   */
+  public void update() {
+    for (int i = 0; i < count; i++) {
+      if (indexOf(previousSprites, previousBoxes, previousCount, sprites[i], boxes, i) == -1) {
+        add(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]);
+      }
+    }
+    for (int i = 0; i < previousCount; i++) {
+      if (indexOf(sprites, boxes, count, previousSprites[i], previousBoxes, i) == -1) {
+        add(previousBoxes[i * 4], previousBoxes[i * 4 + 1], previousBoxes[i * 4 + 2], previousBoxes[i * 4 + 3]);
+      }
+    }
+    merge();
+    // the current sprites become the previous ones
+    Object[] swapSprites = previousSprites;
+    int[] swapBoxes = previousBoxes;
+    previousSprites = sprites;
+    previousBoxes = boxes;
+    previousCount = count;
+    sprites = swapSprites;
+    boxes = swapBoxes;
+    count = 0;
+  }
+
+  private static int indexOf(Object[] sprites, int[] boxes, int count, Object sprite, int[] spriteBoxes, int spriteIndex) {
+    for (int i = 0; i < count; i++) {
+      if (sprites[i] == sprite && Arrays.equals(boxes, i * 4, i * 4 + 4, spriteBoxes, spriteIndex * 4, spriteIndex * 4 + 4)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Adds a rectangle, the parts outside of the frame are ignored.
+   * @param x The X-coordinate of the top-left cell.
+   * @param y The Y-coordinate of the top-left cell.
+   * @param w The width of the rectangle.
+   * @param h The height of the rectangle.
+   */
+  public void add(int x, int y, int w, int h) {
+    int fromX = Math.max(0, x);
+    int fromY = Math.max(0, y);
+    int toX = Math.min(width, x + w);
+    int toY = Math.min(height, y + h);
+    if (fromX >= toX || fromY >= toY) {
+      return;
+    }
+    if (size == xs.length) {
+      xs = Arrays.copyOf(xs, size * 2);
+      ys = Arrays.copyOf(ys, size * 2);
+      ws = Arrays.copyOf(ws, size * 2);
+      hs = Arrays.copyOf(hs, size * 2);
+    }
+    xs[size] = fromX;
+    ys[size] = fromY;
+    ws[size] = toX - fromX;
+    hs[size] = toY - fromY;
+    size++;
+  }
+
+  /**
+   * Replaces the rectangles that overlap, or that continue each other exactly, by the box around them,
+   * until no rectangle can be merged with another one.
+   */
+  public void merge() {
+    boolean merged = true;
+    while (merged) {
+      merged = false;
+      for (int i = 0; i < size; i++) {
+        for (int j = i + 1; j < size; j++) {
+          if (canMerge(i, j)) {
+            int toX = Math.max(xs[i] + ws[i], xs[j] + ws[j]);
+            int toY = Math.max(ys[i] + hs[i], ys[j] + hs[j]);
+            xs[i] = Math.min(xs[i], xs[j]);
+            ys[i] = Math.min(ys[i], ys[j]);
+            ws[i] = toX - xs[i];
+            hs[i] = toY - ys[i];
+            remove(j);
+            merged = true;
+            j = i; // the bigger rectangle can now touch the previous ones
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Do two rectangles overlap, or are they the same lines side by side, or the same columns one above the other?
+   */
+  private boolean canMerge(int i, int j) {
+    boolean touchX = xs[i] <= xs[j] + ws[j] && xs[j] <= xs[i] + ws[i];
+    boolean touchY = ys[i] <= ys[j] + hs[j] && ys[j] <= ys[i] + hs[i];
+    boolean overlap = xs[i] < xs[j] + ws[j] && xs[j] < xs[i] + ws[i] && ys[i] < ys[j] + hs[j] && ys[j] < ys[i] + hs[i];
+    boolean sameLines = ys[i] == ys[j] && hs[i] == hs[j] && touchX;
+    boolean sameColumns = xs[i] == xs[j] && ws[i] == ws[j] && touchY;
+    return overlap || sameLines || sameColumns;
+  }
+
+  private void remove(int index) {
+    size--;
+    xs[index] = xs[size];
+    ys[index] = ys[size];
+    ws[index] = ws[size];
+    hs[index] = hs[size];
+  }
+
+  /**
+   * Gets the number of cells to draw again.
+   * @return The total area of the rectangles.
+   */
+  public int getArea() {
+    int area = 0;
+    for (int i = 0; i < size; i++) {
+      area += ws[i] * hs[i];
+    }
+    return area;
+  }
+
+  public int size() { return this.size; }
+  public int getX(int index) { return this.xs[index]; }
+  public int getY(int index) { return this.ys[index]; }
+  public int getWidth(int index) { return this.ws[index]; }
+  public int getHeight(int index) { return this.hs[index]; }
+}
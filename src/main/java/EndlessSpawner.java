@@ -0,0 +1,108 @@
+package main.java;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+/**
+ * Chooses the obstacles of the endless mode, one after the other, for as long as the player survives.
+ *
+ * The rules come from the config of the map: each line of the config is a possible obstacle,
+ * and a line that appears several times is chosen as many times more often.
+ * The choices only depend on the seed, so a run can be played again exactly by giving the same seed.
+ * The lines that name an obstacle that doesn't exist are ignored (`Assets` reports them when it loads the configs):
+ * if none is left, the map is played as if it didn't have a config, instead of never spawning anything.
+ *
+ * The game gets harder over time: every `DIFFICULTY_PERIOD` milliseconds,
+ * the obstacles move `1 / SPEED_UP` times faster, until they're `1 / MIN_DELAY_FACTOR` times faster.
+ * Choosing an obstacle allocates nothing, so a run of several hours doesn't make the memory grow.
+ */
+public class EndlessSpawner {
+  /**
+   * The duration, in milliseconds of game, after which the obstacles go faster.
+   */
+  public static final long DIFFICULTY_PERIOD = 20_000;
+  private static final double SPEED_UP = 0.9;
+  private static final double MIN_DELAY_FACTOR = 0.4;
+
+  /**
+   * The speed and the y-shift of the obstacles on a map without config (these are the values used by the configs of the `assets` folder).
+   */
+  private static final int DEFAULT_SPEED = 180;
+  private static final int DEFAULT_Y = 30;
+
+  private final ObstacleSpawn[] rules;
+
+  /**
+   * The sum of the weights of the rules, up to each rule (included).
+   */
+  private final int[] cumulativeWeights;
+  private final Random random;
+
+  /**
+   * @param config The config of the map, or `null` if it doesn't have one.
+   * @param obstacleNames The names of all the obstacles, used when the map doesn't have a (usable) config.
+   * @param seed The seed of the random choices.
+   */
+  public EndlessSpawner(MapSpawnConfig config, Collection<String> obstacleNames, long seed) {
+    ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+    if (config != null) {
+      for (ObstacleSpawn spawn : config.getSpawns()) {
+        if (obstacleNames.contains(spawn.getName())) {
+          spawns.add(spawn);
+        }
+      }
+    }
+    if (spawns.isEmpty()) {
+      for (String name : obstacleNames) {
+        spawns.add(new ObstacleSpawn(name, DEFAULT_SPEED, DEFAULT_Y));
+      }
+      spawns.sort((a, b) -> a.getName().compareTo(b.getName())); // the same seed must give the same run
+    }
+    // the identical lines are grouped into a single rule, in the order of the config
+    LinkedHashMap<String, Integer> weights = new LinkedHashMap<>();
+    LinkedHashMap<String, ObstacleSpawn> distinct = new LinkedHashMap<>();
+    for (ObstacleSpawn spawn : spawns) {
+      String key = spawn.getName() + "," + spawn.getSpeed() + "," + spawn.getY();
+      weights.merge(key, 1, Integer::sum);
+      distinct.putIfAbsent(key, spawn);
+    }
+    this.rules = distinct.values().toArray(new ObstacleSpawn[0]);
+    this.cumulativeWeights = new int[rules.length];
+    int total = 0;
+    int i = 0;
+    for (int weight : weights.values()) {
+      total += weight;
+      cumulativeWeights[i++] = total;
+    }
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Chooses the next obstacle.
+   * @return The rule of the obstacle, or `null` if there aren't any obstacle to choose from.
+   */
+  public ObstacleSpawn next() {
+    if (rules.length == 0) {
+      return null;
+    }
+    int choice = random.nextInt(cumulativeWeights[rules.length - 1]);
+    int i = 0;
+    while (cumulativeWeights[i] <= choice) {
+      i++;
+    }
+    return rules[i];
+  }
+
+  /**
+   * Gets how much the delay between the steps of the obstacles is reduced at a given time.
+   * @param time The time of the game, in milliseconds.
+   * @return A factor between `MIN_DELAY_FACTOR` and 1.
+   */
+  public double getDelayFactor(long time) {
+    return Math.max(MIN_DELAY_FACTOR, Math.pow(SPEED_UP, (double)(time / DIFFICULTY_PERIOD)));
+  }
+
+  public int getRuleCount() { return this.rules.length; }
+}
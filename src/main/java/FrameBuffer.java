@@ -0,0 +1,136 @@
+package main.java;
+
+import java.util.Arrays;
+
+/**
+ * An off-screen image of the part of the console used by the game.
+ * Each cell is a single character of the console and contains the index of its color in the pallet,
+ * or `TRANSPARENT` if the cell takes the color of the console.
+ *
+ * The game draws into this grid instead of writing directly to the console,
+ * then `Renderer` sends to the console only the cells that changed since the last frame.
+ */
+public class FrameBuffer {
+  /**
+   * The value of a cell that has the same color as the console's background.
+   */
+  public static final short TRANSPARENT = -1;
+
+  private final int width;
+  private final int height;
+
+  /**
+   * The cells of the grid, line by line (the cell at (x;y) is at `y * width + x`).
+   */
+  private final short[] cells;
+
+  public FrameBuffer(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.cells = new short[width * height];
+    fill(TRANSPARENT);
+  }
+
+  /**
+   * Is the given cell within the grid?
+   * @param x The X-coordinate of the cell.
+   * @param y The Y-coordinate of the cell.
+   * @return `true` if the cell exists.
+   */
+  public boolean contains(int x, int y) {
+    return x >= 0 && y >= 0 && x < width && y < height;
+  }
+
+  /**
+   * Gets the color index of a cell.
+   * @param x The X-coordinate of the cell.
+   * @param y The Y-coordinate of the cell.
+   * @return The index of the color in the pallet, or `TRANSPARENT`.
+   */
+  public short get(int x, int y) {
+    return cells[y * width + x];
+  }
+
+  /**
+   * Sets the color index of a cell.
+   * Cells outside of the grid are ignored, so that an element can be partially off-screen.
+   * @param x The X-coordinate of the cell.
+   * @param y The Y-coordinate of the cell.
+   * @param colorIndex The index of the color in the pallet, or `TRANSPARENT`.
+   */
+  public void set(int x, int y, int colorIndex) {
+    if (contains(x, y)) {
+      cells[y * width + x] = (short)colorIndex;
+    }
+  }
+
+  /**
+   * Gives the same color to every cell.
+   * @param colorIndex The index of the color in the pallet, or `TRANSPARENT`.
+   */
+  public void fill(short colorIndex) {
+    Arrays.fill(cells, colorIndex);
+  }
+
+  /**
+   * Draws a matrix of colors (an image) on top of the current cells.
+   * Each pixel of the matrix takes `pixelSize` cells on the X-axis.
+   * Instead of drawing transparent pixels that would take the same color as the console,
+   * the corresponding cell of the background is copied.
+   * @param matrix The matrix to draw.
+   * @param x The X-coordinate of the cell of the top-left pixel (it can be outside of the grid).
+   * @param y The Y-coordinate of the cell of the top-left pixel (it can be outside of the grid).
+   * @param pixelSize The number of cells of a pixel.
+   * @param background The buffer to copy from for the transparent pixels (of the same size).
+   */
+  public void drawMatrix(Raster matrix, int x, int y, int pixelSize, FrameBuffer background) {
+    byte[] pixels = matrix.getPixels();
+    int fromLine = Math.max(0, -y);
+    int toLine = Math.min(matrix.getHeight(), height - y);
+    for (int lig = fromLine; lig < toLine; lig++) {
+      int offset = lig * matrix.getStride();
+      int line = (y + lig) * width;
+      for (int col = 0; col < matrix.getWidth(); col++) {
+        int n = pixels[offset + col];
+        for (int i = 0; i < pixelSize; i++) {
+          int cellX = x + col * pixelSize + i;
+          if (cellX < 0 || cellX >= width) {
+            continue;
+          }
+          cells[line + cellX] = n == Raster.TRANSPARENT ? background.cells[line + cellX] : (short)n;
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies a rectangle of cells from another buffer of the same size, at the same coordinates.
+   * The parts of the rectangle that are outside of the grid are ignored.
+   * @param other The buffer to copy from (typically, the background).
+   * @param x The X-coordinate of the top-left corner of the rectangle.
+   * @param y The Y-coordinate of the top-left corner of the rectangle.
+   * @param w The width of the rectangle.
+   * @param h The height of the rectangle.
+   */
+  public void copyRegionFrom(FrameBuffer other, int x, int y, int w, int h) {
+    int fromX = Math.max(0, x);
+    int toX = Math.min(width, x + w);
+    int fromY = Math.max(0, y);
+    int toY = Math.min(height, y + h);
+    for (int line = fromY; line < toY && fromX < toX; line++) {
+      System.arraycopy(other.cells, line * width + fromX, cells, line * width + fromX, toX - fromX);
+    }
+  }
+
+  /**
+   * Copies all the cells of another buffer of the same size.
+   * @param other The buffer to copy from.
+   */
+  public void copyFrom(FrameBuffer other) {
+    System.arraycopy(other.cells, 0, cells, 0, cells.length);
+  }
+
+  public int getWidth() { return this.width; }
+  public int getHeight() { return this.height; }
+  public short[] getCells() { return this.cells; }
+}
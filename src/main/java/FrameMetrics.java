@@ -0,0 +1,171 @@
+package main.java;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Measures the frames of the levels: how long it takes to draw them and to send them to the console,
+ * how many bytes they take, and whether the game keeps up with its clock.
+ *
+ * The values are kept in histograms, so that measuring a frame doesn't allocate anything.
+ * They can be displayed on a single line under the map (the HUD),
+ * and they're written in a file when the game is terminated.
+ * The ticks are recorded by the main thread and the frames by the render thread, hence the synchronized methods.
+ */
+public class FrameMetrics {
+  public static final String DEFAULT_PATH = "frame-metrics.txt";
+
+  /**
+   * The time it takes to draw a frame and to encode the cells that changed, in nanoseconds.
+   */
+  private final Histogram renderTimes = new Histogram();
+
+  /**
+   * The time it takes to hand a frame to the writer of the console, in nanoseconds.
+   */
+  private final Histogram flushTimes = new Histogram();
+
+  private final Histogram frameBytes = new Histogram();
+
+  /**
+   * The number of ticks made before each frame (1 if the game is on time).
+   */
+  private final Histogram ticksPerFrame = new Histogram();
+
+  /**
+   * The time between the moment a key was read and the moment it was handled by the game, in nanoseconds.
+   */
+  private final Histogram inputLatencies = new Histogram();
+
+  /**
+   * The number of frames before which the game had to catch up with its clock.
+   */
+  private long lateFrames = 0;
+
+  /**
+   * The number of frames that were never drawn, because a more recent one was ready before the console was.
+   */
+  private long skippedFrames = 0;
+
+  private long ticks = 0;
+
+  /**
+   * The time spent in the levels, in nanoseconds.
+   */
+  private long playingTime = 0;
+
+  /**
+   * Records a frame that was drawn.
+   * @param renderTime The time it took to draw and encode it, in nanoseconds.
+   * @param bytes The number of bytes of the frame.
+   */
+  public synchronized void recordFrame(long renderTime, int bytes) {
+    renderTimes.record(renderTime);
+    frameBytes.record(bytes);
+  }
+
+  /**
+   * Records a key handled by the game.
+   * @param latency The time since the key was read, in nanoseconds.
+   */
+  public synchronized void recordInput(long latency) {
+    inputLatencies.record(latency);
+  }
+
+  /**
+   * Records a frame that was skipped because the console was behind.
+   */
+  public synchronized void recordSkippedFrame() {
+    skippedFrames++;
+  }
+
+  /**
+   * Records the time it took to send a frame to the console.
+   * @param flushTime The time, in nanoseconds.
+   */
+  public synchronized void recordFlush(long flushTime) {
+    flushTimes.record(flushTime);
+  }
+
+  /**
+   * Records the ticks made since the previous frame.
+   * @param ticks The number of ticks.
+   * @param late `true` if the game was late on its clock (some ticks were made to catch up, or forgotten).
+   * @param elapsedTime The time since the previous frame, in nanoseconds.
+   */
+  public synchronized void recordTicks(int ticks, boolean late, long elapsedTime) {
+    this.ticks += ticks;
+    this.playingTime += elapsedTime;
+    if (ticks > 0) {
+      ticksPerFrame.record(ticks);
+    }
+    if (late) {
+      lateFrames++;
+    }
+  }
+
+  /**
+   * Gets the number of ticks actually made per second of the levels.
+   * @return The tick rate, which should be `1000 / World.TICK_DURATION`.
+   */
+  public synchronized double getTickRate() {
+    return playingTime == 0 ? 0 : ticks * 1e9 / playingTime;
+  }
+
+  /**
+   * Gets how much slower than intended the game runs.
+   * An obstacle configured to step every `speed * 0.15` milliseconds actually steps that much later.
+   * @return The drift, in percent (`0` if the game is on time, negative if it's faster).
+   */
+  public synchronized double getDrift() {
+    double tickRate = getTickRate();
+    return tickRate == 0 ? 0 : (1000.0 / World.TICK_DURATION / tickRate - 1) * 100;
+  }
+
+  /**
+   * Gets a short summary of the metrics, to be displayed under the map.
+   * @return A single line of text.
+   */
+  public synchronized String getHudLine() {
+    return String.format("render %.2f ms (p99 %.2f) | flush %.2f ms (p99 %.2f) | %d B/frame (max %d) | %d late | %d skipped | %.1f ticks/s",
+      renderTimes.getMean() / 1e6, renderTimes.getPercentile(99) / 1e6,
+      flushTimes.getMean() / 1e6, flushTimes.getPercentile(99) / 1e6,
+      Math.round(frameBytes.getMean()), frameBytes.getMax(),
+      lateFrames, skippedFrames, getTickRate());
+  }
+
+  /**
+   * Gets the complete summary of the metrics.
+   * @return The lines of the summary.
+   */
+  public synchronized ArrayList<String> getSummaryLines() {
+    ArrayList<String> lines = new ArrayList<>();
+    lines.add(String.format("Frames: %d, late: %d (%.1f%%), skipped because the console was behind: %d", renderTimes.getCount(), lateFrames, 100.0 * lateFrames / Math.max(1, renderTimes.getCount()), skippedFrames));
+    lines.add(String.format("Ticks: %d in %.2f s, %.1f ticks/s (expected %d), obstacle step period %+.1f%% from the intended one", ticks, playingTime / 1e9, getTickRate(), 1000 / World.TICK_DURATION, getDrift()));
+    lines.add(describe("Render time (ms)", renderTimes, 1e6));
+    lines.add(describe("Submit time (ms)", flushTimes, 1e6));
+    lines.add(describe("Bytes per frame", frameBytes, 1));
+    lines.add(describe("Ticks per frame", ticksPerFrame, 1));
+    lines.add(describe("Key latency (ms)", inputLatencies, 1e6));
+    return lines;
+  }
+
+  private static String describe(String name, Histogram histogram, double unit) {
+    return String.format("%-17s mean %9.3f  p50 %9.3f  p90 %9.3f  p99 %9.3f  max %9.3f",
+      name, histogram.getMean() / unit, histogram.getPercentile(50) / unit, histogram.getPercentile(90) / unit,
+      histogram.getPercentile(99) / unit, histogram.getMax() / unit);
+  }
+
+  /**
+   * Writes the summary into a file.
+   * @param path The path to the file.
+   */
+  public synchronized void writeTo(String path) throws IOException {
+    try (FileWriter writer = new FileWriter(path)) {
+      for (String line : getSummaryLines()) {
+        writer.write(line + System.lineSeparator());
+      }
+    }
+  }
+}
@@ -1,91 +1,82 @@
 package main.java;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 public class Game extends Controls {
-  private final String ANSI_RESET = "\u001b[0m";
-  private final String ANSI_BG_DEFAULT_COLOR = "\u001b[49m";
-  private final String PIXEL = "  "; // In reality, a pixel is composed of two spaces and the background is then colored using ANSI
-  private final int PIXEL_SIZE = PIXEL.length(); // we'll need this in the calculations of the movements
+  static final String PIXEL = "  "; // In reality, a pixel is composed of two spaces and the background is then colored using ANSI
+  static final int PIXEL_SIZE = PIXEL.length(); // we'll need this in the calculations of the movements
 
   /**
-   * The number of pixels the player will jump upwards and downwards.
+   * The maximum number of ticks that can be made to catch up with the clock before displaying a frame.
+   * If the game is later than that (because the console is too slow for example),
+   * the missed time is forgotten instead of making the obstacles move faster.
    */
-  private final int JUMP_HEIGHT = 13;
+  private final int MAX_TICKS_PER_FRAME = 10;
 
   /**
-   * The delay between each step of the jump.
-   * A delay too low will make the jump look instantaneous or hard to follow.
+   * The delay between two updates of the HUD, in nanoseconds (it doesn't need to change on every frame).
    */
-  private final int JUMP_DELAY_BETWEEN_EACH_FRAME = 40;
-  
-  /**
-   * The minimal height, in characters, for the console so that the game can be played normally.
-   */
-  private final int MINIMAL_GUI_HEIGHT = 50;
+  private final long HUD_REFRESH_DELAY = TimeUnit.MILLISECONDS.toNanos(250);
+
+  static final String PLAYER_DEFAULT_SKIN = "amongus";
 
   /**
-   * The minimal width, in semi-characters, for the console so that the game can be played normally.
-   * We display each number from "00" up to this value so each number takes two characters (the size of a pixel).
-   * TODO: we might have to use as many characters as there are in `PIXEL_SIZE` to make changing `PIXEL` possible
+   * The line of the console on which the first line of the map is displayed.
+   * It's because we clear the screen before, the console starts with two lines.
    */
-  private final int MINIMAL_GUI_WIDTH = 35;
+  private final int MAP_SCREEN_Y = 2;
 
-  private final String COLORS_PATH = "assets/0-colors.csv";
-  private final String PLAYER_DEFAULT_SKIN = "assets/skins/amongus.csv";
-  private final String MAPS_DIRECTORY = "assets/maps";
-  private final String OBSTACLES_DIRECTORY = "assets/obstacles";
-  private final String CONFIGS_DIRECTORY = "assets/map-configs";
+  private final int JUMP_KEY = 32;
+  private final int TOP_ARROW_KEY = KeyEvent.UP;
+  private final int BOTTOM_ARROW_KEY = KeyEvent.DOWN;
+  // private final int RIGHT_ARROW_KEY = KeyEvent.RIGHT;
+  // private final int LEFT_ARROW_KEY = KeyEvent.LEFT;
+  private final int ENTER_KEY = 13;
 
   /**
-   * The number of pixels on the Y-axis between the top of the map and the floor.
-   * It must be the same on all maps, hence this constant.
+   * The pallet, the maps, the obstacles, the skins and the config of each map.
    */
-  private final int MAP_DISTANCE_UNTIL_FLOOR = 32;
+  private Assets assets = null;
 
-  private final int JUMP_KEY = 32;
-  private final int TOP_ARROW_KEY = 17;
-  private final int BOTTOM_ARROW_KEY = 18;
-  // private final int RIGHT_ARROW_KEY = 19;
-  // private final int LEFT_ARROW_KEY = 20;
-  private final int ENTER_KEY = 13;
+  /**
+   * The part of the map of the current level that is displayed, and the position of the camera on it.
+   */
+  private Viewport viewport = null;
 
   /**
-   * The player's position on the X-axis in the map.
-   * In theory, it should always be the same.
+   * The map of the current level, without any element of the foreground, as it's seen through `viewport`.
+   * Each cell is a character of the console, so a pixel takes `PIXEL_SIZE` cells.
    */
-  private int playerX = 2; // ! MUST BE DIVISIBLE BY `PIXEL_SIZE` AND > 0 !
+  private FrameBuffer background = null;
 
   /**
-   * The player's position on the Y-axis in the map.
-   * This position is within the map itself, so y=0 means the top of the map, not the top of the GUI.
-   * By default, the player needs to be placed on the floor.
+   * What the console should be displaying: the background and the elements of the foreground.
+   * All the drawing happens in this buffer, then `renderer` sends the changes to the console.
    */
-  private int playerY = MAP_DISTANCE_UNTIL_FLOOR;
+  private FrameBuffer frame = null;
 
-  private ArrayList<Color> allColors = new ArrayList<>();
-  private HashMap<String, Map> allMaps = new HashMap<>();
-  private HashMap<String, Obstacle> allObstacles = new HashMap<>();
-  private HashMap<String, MapSpawnConfig> allConfigs = new HashMap<>(); // where, when and how fast the obstacles spawn for each map
-  private ArrayList<ArrayList<Integer>> playerCurrentMatrix = new ArrayList<>();
+  /**
+   * The parts of `frame` that must be drawn again because a sprite moved in them.
+   * The rest of the frame is left untouched, so the work of a frame depends on how much the sprites moved,
+   * not on the size of the map.
+   */
+  private DirtyRegions dirtyRegions = null;
 
   /**
-   * Since we don't want the main thread to terminate too soon,
-   * as long as we're waiting for user inputs, we'll put it to sleep.
-   * Terminate this sleep by setting this variable to `true`.
+   * Sends the frames to the console.
+   * It's created once the colors are loaded.
    */
-  private boolean gameFinished = false;
+  private Renderer renderer = null;
 
   /**
-   * Can the player jump? By default, it is `true`.
-   * It's necessary to make sure that the player doesn't double-jump.
+   * Since we don't want the main thread to terminate too soon,
+   * as long as we're waiting for user inputs, the main loop keeps running.
+   * Terminate this loop by setting this variable to `true`.
    */
-  private boolean canJump = true;
+  private boolean gameFinished = false;
 
   /**
    * The name of the current map.
@@ -103,9 +94,111 @@ public class Game extends Controls {
   private GameMenu currentMenu = null;
 
   /**
-   * The thread responsible for the jump.
+   * The duration of each phase of the startup, and the files that couldn't be loaded.
+   */
+  private final StartupReport startupReport = new StartupReport();
+
+  /**
+   * Where to write `startupReport` (given with `--startup-report=<path>`).
+   * If it's `null`, the report is displayed when the game is terminated.
+   */
+  private String startupReportPath = null;
+
+  /**
+   * Was the endless mode chosen in the main menu (instead of the arcade mode)?
+   */
+  private boolean endlessMode = false;
+
+  /**
+   * The seed of the obstacles of the endless mode (given with `--seed=<n>`), or `null` for a different run each time.
+   */
+  private Long endlessSeed = null;
+
+  /**
+   * The colors the console can display, guessed from the environment unless it's given with `--colors=<truecolor|256|16>`.
+   */
+  private ColorDepth colorDepth = ColorDepth.detect();
+
+  /**
+   * Does each character of the console show two lines of the maps (given with `--half-blocks`)?
+   * The maps then take half as many lines in the console.
+   */
+  private boolean halfBlocks = false;
+
+  /**
+   * The level being played, or `null` if the user is in a menu.
+   */
+  private World world = null;
+
+  /**
+   * The recording of the level being played, written in `Replay.DIRECTORY` when the level ends.
+   */
+  private Replay replay = null;
+
+  /**
+   * The replay given with `--replay=<path>`, played instead of the keys of the user, or `null`.
    */
-  private Thread jumpThread = null;
+  private Replay playback = null;
+  private long[] playbackJumps = null;
+  private int nextPlaybackJump = 0;
+  private String replayPath = null;
+
+  /**
+   * The file of the last level that was recorded, displayed when the game is terminated.
+   */
+  private String lastReplayPath = null;
+
+  /**
+   * Why the last level couldn't be recorded, if it couldn't (displayed when the game is terminated, not to interrupt it).
+   */
+  private IOException replayError = null;
+
+  /**
+   * The time, according to `System.nanoTime()`, at which the next tick of `world` must happen.
+   */
+  private long nextTickTime = 0;
+
+  /**
+   * The time spent on each frame, the bytes written and the tick rate of the levels.
+   */
+  private final FrameMetrics metrics = new FrameMetrics();
+
+  /**
+   * Where to write the summary of `metrics` when the game is terminated (given with `--metrics=<path>`).
+   */
+  private String metricsPath = FrameMetrics.DEFAULT_PATH;
+
+  /**
+   * Are the metrics displayed on a line under the map (given with `--hud`)?
+   */
+  private boolean hudEnabled = false;
+  private long nextHudTime = 0;
+
+  /**
+   * The last state of `world`, published by the main thread after its ticks and taken by `renderThread` to draw it.
+   * The main thread never waits for a frame to be drawn, and the render thread only ever sees complete ticks.
+   * If a snapshot is replaced before being taken (because the console is behind), it's a skipped frame.
+   */
+  private final AtomicReference<WorldSnapshot> publishedSnapshot = new AtomicReference<>();
+
+  /**
+   * The thread drawing the frames of the current level, or `null` if the user is in a menu.
+   * While it's running, it's the only one to use `frame`, `background`, `dirtyRegions`, `renderer` and the console.
+   * They go back to the main thread once it's stopped (see `stopRendering()`).
+   */
+  private Thread renderThread = null;
+  private volatile boolean rendering = false;
+
+  /**
+   * The number of times the console was resized (see `Screen`) when the menu, or the frame, was last drawn entirely.
+   */
+  private int menuResizes = 0;
+  private int frameResizes = 0;
+
+  /**
+   * The time, according to `System.nanoTime()`, at which the world was last updated.
+   */
+  private long lastUpdateTime = 0;
 
   /**
    * Starts the game.
@@ -114,129 +207,151 @@ public class Game extends Controls {
    */
   public void start() {
     currentMenu = new MainMenu(); // the player starts with the main menu
+    Screen.enter();
+    enableRawMode();
+    Screen.askSynchronizedUpdates(); // sent from this thread: the listener only reads the answer, with the keys
     enableKeyTypedInConsole(true);
 
     println("Chargement...");
+    Terminal.flush();
 
-    initializeColors();
-    initializeAllMaps();
-    initializeAllObstacles();
-    initializeAllConfigs();
+    assets = Assets.load(startupReport);
+    renderer = new Renderer(assets.getColors(), colorDepth, halfBlocks, 1, MAP_SCREEN_Y);
 
+    long menuStart = System.nanoTime();
     clearMyScreen();
     currentMenu.display();
+    Terminal.flush();
+    startupReport.addTime("menu", System.nanoTime() - menuStart);
+    if (startupReportPath != null) {
+      try {
+        startupReport.writeTo(startupReportPath);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    if (replayPath != null) {
+      playReplay(replayPath);
+    }
 
     while (!gameFinished) {
-      sleep(100);
+      // the keys are read in another thread, but they're handled here, before the tick,
+      // so that the game is only ever modified by a single thread
+      KeyEvent key;
+      while ((key = pollKeyEvent()) != null) {
+        metrics.recordInput(System.nanoTime() - key.getTime());
+        handleKey(key.getCode());
+      }
+      if (world == null && currentMenu != null && Screen.getResizes() != menuResizes) {
+        // the console may have moved or cut the lines of the menu
+        menuResizes = Screen.getResizes();
+        clearMyScreen();
+        currentMenu.display();
+      }
+      if (world != null) {
+        updateWorld();
+      } else {
+        nextTickTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(World.TICK_DURATION);
+      }
+      if (renderThread == null) {
+        Terminal.submit(); // the menus (the render thread submits its own frames)
+      }
+      LockSupport.parkNanos(nextTickTime - System.nanoTime());
     }
+    Screen.leave(); // what's next is written in the normal screen, so it stays visible after the game
     println("Game was terminated.");
+    if (lastReplayPath != null) {
+      println("Last level recorded in " + lastReplayPath + ".");
+    }
+    if (replayError != null) {
+      println("A level couldn't be recorded: " + replayError.getMessage());
+    }
+    println(renderer.getFrames() + " frames rendered, " + renderer.getTotalBytes() + " bytes written (" + (renderer.getTotalBytes() / Math.max(1, renderer.getFrames())) + " bytes per frame on average, " + renderer.getTotalSavedBytes() + " bytes saved by coalescing the colors).");
+    println("Color depth: " + colorDepth.getName() + ".");
+    MapCache maps = assets.getMaps();
+    println("Maps: " + maps.getHits() + " hit(s), " + maps.getMisses() + " miss(es), " + maps.getEvictions() + " eviction(s), " + maps.getBytes() + " bytes in the cache.");
+    try {
+      metrics.writeTo(metricsPath);
+      println("Frame metrics written in " + metricsPath + ".");
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    if (startupReportPath == null) {
+      println("Startup:");
+      for (String line : startupReport.getLines()) {
+        println(line);
+      }
+    }
+    Terminal.flush();
     enableKeyTypedInConsole(false);
   }
 
   /**
-   * Spawns the objects for the given map and make them move.
-   * A separate thread is created during this process.
-   * The object moves until it reaches the beginning of the map.
-   * 
-   * TODO: this code doesn't work if the map is not at (0;0)
-   * 
-   * @param spawnIndex The index of the spawn configuration of the current map.
-   */
-  public void moveObstacle(int spawnIndex) {
-    ObstacleSpawn spawn = allConfigs.get(currentMapName).getSpawns().get(spawnIndex);
-    Obstacle obstacle = allObstacles.get(spawn.getName());
-    long delayBetweenEachStep = (long)(spawn.getSpeed() * 0.15);
-    int[] mapDimensions = allMaps.get(currentMapName).getMatrixDimensions();
-    int[] obstacleDimensions = obstacle.getMatrixDimensions();
-    int playerWidth = playerCurrentMatrix.get(0).size();
-    int playerHeight = playerCurrentMatrix.size();
-    int posX = (mapDimensions[0] - obstacleDimensions[0]) * PIXEL_SIZE;
-    int posY = spawn.getY();
-    Thread movementThread = new Thread() {
-      public void run() {
-        boolean lost = false;
-        boolean quit = false;
-        int maxX = obstacleDimensions[0];
-        int x = posX;
-        while (x > maxX) {
-          // Just to make sure this thread gets the word that the player isn't playing anymore.
-          if (gameFinished || currentMenu != null) {
-            quit = true;
-            break;
-          }
-          // For the player to lose:
-          // Check if the `x` variable is equal to `(playerX + playerWidth) * PIXEL_SIZE` (the last pixel of a line from the player's matrix).
-          // If the player is not colliding with the obstacle, then:
-          // - the Y of the obstacle + its height < playerY
-          // - the Y of the obstacle > playerY + its height
-          if (x == (playerX + playerWidth) * PIXEL_SIZE) {
-            boolean isObstacleAbovePlayer = posY + obstacleDimensions[1] < playerY;
-            boolean isObstacleBelowPlayer = posY > playerY + playerHeight;
-            if (!isObstacleAbovePlayer && !isObstacleBelowPlayer) {
-              lost = true;
-              clearMyScreen();
-              (currentMenu = new GameOverMenu()).display();
-              break;
-            }
-          }
-
-          // Stop showing the obstacles when the player is jumping
-          if (!canJump) {
-            try {
-              x--;
-              Thread.sleep(delayBetweenEachStep);
-              continue;
-            } catch (InterruptedException ignore) {}
-          }
-          try {
-            removeElementFromForeground(obstacle.getMatrix(), x, posY, x, posY);
-            x--;
-            displayMatrix(obstacle.getMatrix(), true, x, posY, x, posY);
-            Thread.sleep(delayBetweenEachStep);
-          } catch (InterruptedException ignore) { }
-          removeElementFromForeground(obstacle.getMatrix(), x, posY, x, posY);
+   * Makes the ticks of the world that had to happen until now, then publishes the result for the render thread.
+   * The world always moves at the same pace, whatever the time it takes to display a frame,
+   * because each tick is scheduled from the previous one, and not from the current time.
+   * When the level ends, the corresponding menu is displayed.
+   */
+  private void updateWorld() {
+    long tickDuration = TimeUnit.MILLISECONDS.toNanos(World.TICK_DURATION);
+    long now = System.nanoTime();
+    int ticks = 0;
+    while (now - nextTickTime >= 0 && ticks < MAX_TICKS_PER_FRAME && world.getOutcome() == World.Outcome.PLAYING) {
+      if (playback != null) {
+        // the jumps of the replay are made exactly like the keys, between two ticks
+        while (nextPlaybackJump < playbackJumps.length && playbackJumps[nextPlaybackJump] <= world.getTick()) {
+          world.jump();
+          nextPlaybackJump++;
         }
-        if (!lost && !quit) {
-          if ((spawnIndex + 1) < allConfigs.get(currentMapName).getSpawns().size()) {
-            moveObstacle(spawnIndex + 1);
-          } else {
-            // the player won
-            clearMyScreen();
-            (currentMenu = new VictoryMenu()).display();
+      }
+      world.tick();
+      nextTickTime += tickDuration;
+      ticks++;
+    }
+    boolean late = ticks > 1;
+    if (now - nextTickTime >= 0) {
+      nextTickTime = now + tickDuration; // too late: we forget about the missed ticks
+      late = true;
+    }
+    metrics.recordTicks(ticks, late, now - lastUpdateTime);
+    lastUpdateTime = now;
+    switch (world.getOutcome()) {
+      case LOST:
+        long survivedTime = world.getTime();
+        endLevel();
+        clearMyScreen();
+        (currentMenu = endlessMode ? new GameOverMenu(survivedTime) : new GameOverMenu()).display();
+        return;
+      case WON:
+        endLevel();
+        clearMyScreen();
+        (currentMenu = new VictoryMenu()).display();
+        return;
+      default:
+        if (ticks > 0) {
+          if (publishedSnapshot.getAndSet(world.snapshot()) != null) {
+            metrics.recordSkippedFrame(); // the previous snapshot was never drawn
           }
+          LockSupport.unpark(renderThread);
         }
-        if (jumpThread != null) {
-          jumpThread.interrupt();
-          jumpThread = null;
-          canJump = true;
-          playerY = MAP_DISTANCE_UNTIL_FLOOR;
-        }
-      }
-    };
-    movementThread.start();
-  }
-
-  /**
-   * Starts spawning the objects one by one, starting at index `0`.
-   */
-  public void startSpawningObjects() {
-    moveObstacle(0);
+    }
   }
 
   /**
    * Makes the selector go up in the menu.
    */
   private void selectMenuUp() {
-    if (GameMenu.canGoUp()){
+    if (currentMenu.canGoUp()) {
       saveCursorPosition();
-      moveCursorTo(GameMenu.LEFT_X, GameMenu.current_selector_y);
-      System.out.print(" ");
+      moveCursorTo(GameMenu.LEFT_X, currentMenu.getSelectorY());
+      Terminal.print(" ");
       restoreCursorPosition();
-      GameMenu.current_selector_y--;
+      currentMenu.moveSelector(-1);
       saveCursorPosition();
-      moveCursorTo(GameMenu.LEFT_X, GameMenu.current_selector_y);
-      System.out.print(">");    
+      moveCursorTo(GameMenu.LEFT_X, currentMenu.getSelectorY());
+      Terminal.print(">");
       restoreCursorPosition();
+      preloadSelectedMap();
     }
   }
 
@@ -244,16 +359,28 @@ public class Game extends Controls {
    * Makes the selector go down in the menu.
    */
   private void selectMenuDown() {
-    if (GameMenu.canGoDown()) {
+    if (currentMenu.canGoDown()) {
       saveCursorPosition();
-      moveCursorTo(GameMenu.LEFT_X, GameMenu.current_selector_y);
-      System.out.print(" ");
+      moveCursorTo(GameMenu.LEFT_X, currentMenu.getSelectorY());
+      Terminal.print(" ");
       restoreCursorPosition();
-      GameMenu.current_selector_y++;
+      currentMenu.moveSelector(1);
       saveCursorPosition();
-      moveCursorTo(GameMenu.LEFT_X, GameMenu.current_selector_y);
-      System.out.print(">");
+      moveCursorTo(GameMenu.LEFT_X, currentMenu.getSelectorY());
+      Terminal.print(">");
       restoreCursorPosition();
+      preloadSelectedMap();
+    }
+  }
+
+  /**
+   * Starts decoding the map under the selector in the background,
+   * so that it's ready when the user selects it.
+   */
+  private void preloadSelectedMap() {
+    Page selectedPage = currentMenu.getSelectedPage();
+    if (selectedPage.isMap()) {
+      assets.getMaps().preload(selectedPage.getMapName());
     }
   }
 
@@ -270,24 +397,25 @@ public class Game extends Controls {
     clearMyScreen();
 
     if (selectedPage.isMap()) {
-      currentMenu = null;
-      currentMapName = selectedPage.getMapName();
-      setPlayerSkin(PLAYER_DEFAULT_SKIN);
-      displayMap(currentMapName);
-      saveCursorPosition();
-      displayPlayer();
-      restoreCursorPosition();
-      startSpawningObjects();
+      Map map;
+      try {
+        map = assets.getMaps().get(selectedPage.getMapName()); // usually preloaded while the user was in the menu
+      } catch (IOException e) {
+        (currentMenu = new UnknownMenu("Impossible de charger la carte \"" + selectedPage.getText() + "\" (" + e.getMessage() + ").")).display();
+        return;
+      }
+      long seed = endlessMode ? (endlessSeed != null ? endlessSeed : System.nanoTime()) : 0;
+      startLevel(new Replay(selectedPage.getMapName(), endlessMode, seed), map);
     } else {
       switch (selectedPage) {
         case NORMAL_MODE:
-          (currentMenu = new UnknownMenu("Mais tu crois j'ai le temps de coder ça!?\r\nJ'ai besoin de dormir aussi ;(\r\nPar contre on a codé le mode Arcade! Allez zou.")).display();
-          return;
         case ARCADE_MODE:
+          endlessMode = selectedPage == Page.NORMAL_MODE; // both modes are played on the same maps
           (currentMenu = new MapSelectionMenu()).display();
+          preloadSelectedMap();
           return;
         case CHECK_SCREEN:
-          (currentMenu = new ScreenCheckMenu(MINIMAL_GUI_HEIGHT, MINIMAL_GUI_WIDTH, PIXEL_SIZE)).display();
+          (currentMenu = createScreenCheckMenu()).display();
           return;
         case CREDITS:
           (currentMenu = new CreditsMenu()).display();
@@ -298,8 +426,71 @@ public class Game extends Controls {
     }
   }
 
-  @Override
-  protected void keyTypedInConsole(int keyCode) {
+  /**
+   * Starts a level, which is recorded in a new replay.
+   * @param level The map, the mode and the seed of the level (an empty replay).
+   * @param map The map, already loaded.
+   */
+  private void startLevel(Replay level, Map map) {
+    currentMenu = null;
+    currentMapName = level.getMapName();
+    endlessMode = level.isEndless();
+    replay = level;
+    world = level.createWorld(assets, map);
+    nextTickTime = System.nanoTime();
+    lastUpdateTime = nextTickTime;
+    displayMap(map, world.getViewportWidth());
+    startRendering(world.snapshot());
+  }
+
+  /**
+   * Plays a replay in the console, at the pace of the game. The keys of the user are ignored until it ends.
+   * @param path The path of the replay.
+   */
+  private void playReplay(String path) {
+    try {
+      playback = Replay.read(path);
+      Map map = assets.getMaps().get(playback.getMapName());
+      clearMyScreen();
+      playbackJumps = playback.getJumpTicks();
+      nextPlaybackJump = 0;
+      startLevel(new Replay(playback.getMapName(), playback.isEndless(), playback.getSeed()), map);
+    } catch (IOException e) {
+      playback = null;
+      clearMyScreen();
+      (currentMenu = new UnknownMenu("Impossible de lire la partie \"" + path + "\" (" + e.getMessage() + ").")).display();
+    }
+  }
+
+  /**
+   * Leaves the level being played, and writes its replay (unless it was itself a replay).
+   * The render thread is stopped here, so the screen belongs to the main thread again.
+   */
+  private void endLevel() {
+    if (playback == null) {
+      replay.finish(world.getOutcome(), world.getTick());
+      try {
+        lastReplayPath = replay.save();
+      } catch (IOException e) {
+        replayError = e;
+      }
+    }
+    replay = null;
+    playback = null;
+    playbackJumps = null;
+    world = null;
+    stopRendering();
+  }
+
+  /**
+   * Reacts to a key typed by the user, depending on the current menu.
+   * @param keyCode The unique key code of the pressed key.
+   */
+  private void handleKey(int keyCode) {
+    if (keyCode == KeyEvent.SYNCHRONIZED_UPDATES) {
+      Screen.enableSynchronizedUpdates(); // the answer of the console, not a key
+      return;
+    }
     if (currentMenu != null && currentMenu.hasChoices()) {
       switch (keyCode) {
         case TOP_ARROW_KEY:
@@ -313,8 +504,11 @@ public class Game extends Controls {
           return;
       }
     } else if (currentMenu == null) { // meaing the player is on a map
-      if (keyCode == JUMP_KEY) {
-        jump();
+      if (keyCode == JUMP_KEY && playback == null) {
+        if (world.canJump()) {
+          replay.recordJump(world.getTick()); // the jump happens before the next tick, so does the one of the replay
+        }
+        world.jump();
         return;
       }
     }
@@ -322,6 +516,10 @@ public class Game extends Controls {
       if (currentMenu instanceof MainMenu) {
         gameFinished = true; // we stop the main loop by setting this to `true`
       } else {
+        if (world != null) {
+          endLevel();
+        }
+        forgetMap();
         clearMyScreen();
         currentMenu = new MainMenu();
         currentMenu.display();
@@ -330,300 +528,256 @@ public class Game extends Controls {
   }
 
   /**
-   * Reads a file containing all the colors and metadata associated with them.
-   * Each color has one metadata called "x".
-   * If "x" is set `true` then it means the user can walk on it.
-   * For obstacles, this variable will be `false`.
-   * 
-   * This function will only get called once at game initialization.
-   */
-  private void initializeColors() {
-    try (BufferedReader reader = new BufferedReader(new FileReader(COLORS_PATH))) {
-      reader.readLine(); // voluntarily ignoring the header
-      String line = "";
-      while ((line = reader.readLine()) != null) {
-        Scanner scanner = new Scanner(line).useDelimiter(",");
-        int x = scanner.nextInt();
-        int r = scanner.nextInt();
-        int g = scanner.nextInt();
-        int b = scanner.nextInt();
-        allColors.add(new Color(Utils.RGBToANSI(new int[]{r,g,b}, true), x == 1));
-        scanner.close();
-      }
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
-  }
-
-  /**
-   * Reads all maps contained in `MAPS_DIRECTORY`.
-   * Each CSV file is a unique map, which is a matrix of integers.
+   * Creates the screen check for the largest frame the maps give:
+   * the columns of the viewport, and the lines of the map (half of them with half blocks),
+   * between the lines above the map and the line of the HUD.
+   * @return The menu, not displayed yet.
    */
-  private void initializeAllMaps() {
-    String[] maps = Utils.getAllFilesFromDirectory(MAPS_DIRECTORY);
-
-    for (String map : maps) {
-      try (BufferedReader reader = new BufferedReader(new FileReader(MAPS_DIRECTORY + "/" + map))) {
-        String mapName = map.substring(0, map.length()-4);
-        allMaps.put(mapName, new Map(mapName, readMatrix(reader)));
-      } catch (Exception ignore) {}
+  private ScreenCheckMenu createScreenCheckMenu() {
+    int width = 0;
+    int height = 0;
+    MapCache maps = assets.getMaps();
+    for (String name : maps.getNames()) {
+      // the maps aren't decoded: their size is known from the moment they're registered
+      width = Math.max(width, Math.min(World.VIEWPORT_WIDTH, maps.getWidth(name)));
+      height = Math.max(height, maps.getHeight(name));
     }
+    int lines = MAP_SCREEN_Y + (halfBlocks ? (height + 1) / 2 : height);
+    return new ScreenCheckMenu(lines, width, PIXEL_SIZE);
   }
 
   /**
-   * Reads all obstacles contained in `OBSTACLES_DIRECTORY`.
-   */
-  private void initializeAllObstacles() {
-    String[] obstacles = Utils.getAllFilesFromDirectory(OBSTACLES_DIRECTORY);
-
-    for (String obstacle : obstacles) {
-      try (BufferedReader reader = new BufferedReader(new FileReader(OBSTACLES_DIRECTORY + "/" + obstacle))) {
-        String obstacleName = obstacle.substring(0, obstacle.length()-4);
-        allObstacles.put(obstacleName, new Obstacle(obstacleName, readMatrix(reader)));
-      } catch (Exception ignore) {}
-    }
-  }
-  
-  /**
-   * Reads all the maps' unique config.
-   * A map config contains where, when and how fast its obstacles spawn.
-   */
-  private void initializeAllConfigs() {
-    String[] configs = Utils.getAllFilesFromDirectory(CONFIGS_DIRECTORY);
-
-    for (String config : configs) {
-      String mapName = config.substring(0, config.indexOf("-"));
-      allConfigs.put(mapName, MapSpawnConfig.fromCSV(CONFIGS_DIRECTORY + "/" + config));
-    }
+   * Displays a map onto the console.
+   * The part of the map seen through the viewport becomes the background of the frames,
+   * which are sized according to the viewport.
+   * @param map The map and its matrix.
+   * @param viewportWidth The number of columns of the map that are displayed.
+   */
+  private void displayMap(Map map, int viewportWidth) {
+    viewport = new Viewport(map, viewportWidth, PIXEL_SIZE);
+    background = viewport.getBackground();
+    frame = new FrameBuffer(background.getWidth(), background.getHeight());
+    frame.copyFrom(background);
+    // the screen was cleared just before
+    renderer.reset(frame.getWidth(), frame.getHeight(), FrameBuffer.TRANSPARENT);
+    renderer.setBackground(background); // encoded once, until the user goes back to the main menu
+    dirtyRegions = new DirtyRegions(frame.getWidth(), frame.getHeight());
+    dirtyRegions.add(0, 0, frame.getWidth(), frame.getHeight()); // the whole map is drawn in the first frame
   }
 
   /**
-   * Reads a matrix of integers (the grid of a colored element on the map).
-   * Useful to get the style of an obstacle, a map and a player skin.
-   * Each integer is the index of a color in the pallet.
+   * Draws a matrix of colors (an image) on the foreground of the current frame.
+   * Instead of drawing transparent pixels
+   * that would take the same color as the console,
+   * we paint the corresponding pixel of the background.
    * 
-   * Note that the header is ignored.
-   * @param reader The reader for the CSV file containing the matrix.
-   * @return 
+   * Nothing is sent to the console until `renderFrame` is called.
+   * @param matrix The matrix of an obstacle or the player.
+   * @param cursorX The X-coordinate, in the console, at which to start drawing the image.
+   * @param cursorY The Y-coordinate, in the console, at which to start drawing the image.
    */
-  private ArrayList<ArrayList<Integer>> readMatrix(BufferedReader reader) {
-    ArrayList<ArrayList<Integer>> grid = new ArrayList<>();
-    try {
-      reader.readLine(); // voluntarily ignoring the header
-      String line = "";
-      while ((line = reader.readLine()) != null) {
-        ArrayList<Integer> pixels = new ArrayList<>();
-        Scanner scanner = new Scanner(line).useDelimiter(",");
-        while (scanner.hasNext()) {
-          pixels.add(scanner.nextInt());
-        }
-        grid.add(pixels);
-        scanner.close();
-      }
-    } catch (IOException ignore) {}
-    return grid;
+  private void displayMatrix(Raster matrix, int cursorX, int cursorY) {
+    frame.drawMatrix(matrix, cursorX - 1, cursorY - MAP_SCREEN_Y, PIXEL_SIZE, background);
   }
 
   /**
-   * Initializes the skin of the player.
+   * Starts the thread drawing the frames of a level.
+   * The map must already be displayed (see `displayMap()`).
+   * @param snapshot The state of the world in the first frame.
    */
-  private void setPlayerSkin(String skin) {
-    playerCurrentMatrix.clear();
-
-    try (BufferedReader reader = new BufferedReader(new FileReader(skin))) {
-      playerCurrentMatrix = readMatrix(reader);
-    } catch (Exception ignore) { }
+  private void startRendering(WorldSnapshot snapshot) {
+    publishedSnapshot.set(snapshot);
+    frameResizes = Screen.getResizes(); // the map was just displayed
+    rendering = true;
+    renderThread = new Thread(this::renderLoop, "renderer");
+    renderThread.setDaemon(true);
+    Thread thread = renderThread;
+    Terminal.setBufferListener(() -> LockSupport.unpark(thread));
+    renderThread.start();
   }
 
   /**
-   * Displays a map onto the console.
-   * @param map The map and its matrix.
+   * Stops the thread drawing the frames, and waits for the frame it was drawing.
+   * Then the main thread can use the console again.
    */
-  private void displayMap(String mapName) {
-    ArrayList<ArrayList<Integer>> grid = getMapMatrix(mapName);
-    displayMatrix(grid, false, -1, -1, -1, -1);
+  private void stopRendering() {
+    if (renderThread == null) {
+      return;
+    }
+    rendering = false;
+    LockSupport.unpark(renderThread);
+    try {
+      renderThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    renderThread = null;
+    Terminal.setBufferListener(null);
+    publishedSnapshot.set(null);
   }
 
   /**
-   * Gets the matrix of a map.
-   * @param index The unique index of this map.
-   * @return The grid (a list of lists of integers where each integer is a color).
+   * The loop of the render thread: it draws each new snapshot, then hands it to the writer of the console.
+   * It never waits for the console: if the writer has no free buffer, the snapshot is left where it is,
+   * and the thread sleeps until the writer is done with a buffer or a new snapshot is published.
    */
-  private ArrayList<ArrayList<Integer>> getMapMatrix(String mapName) {
-    return allMaps.get(mapName).getMatrix();
+  private void renderLoop() {
+    while (rendering) {
+      WorldSnapshot snapshot = Terminal.canSubmit() ? publishedSnapshot.getAndSet(null) : null;
+      if (snapshot == null) {
+        LockSupport.park(this);
+        continue;
+      }
+      if (Screen.getResizes() != frameResizes) {
+        // the console may have moved or cut the lines of the map: everything is drawn again
+        frameResizes = Screen.getResizes();
+        clearMyScreen();
+        renderer.reset(frame.getWidth(), frame.getHeight(), FrameBuffer.TRANSPARENT);
+        dirtyRegions.add(0, 0, frame.getWidth(), frame.getHeight());
+        nextHudTime = System.nanoTime();
+      }
+      Screen.beginUpdate();
+      renderFrame(snapshot);
+      Screen.endUpdate();
+      long submitStart = System.nanoTime();
+      Terminal.submit();
+      metrics.recordFlush(System.nanoTime() - submitStart);
+    }
   }
 
   /**
-   * Displays a matrix of colors (an image) at either the background or the foreground.
-   * If the image must be drawn on the foreground,
-   * then instead of drawing transparent pixels
-   * that would take the same color as the console,
-   * we paint the corresponding pixel of the background.
-   * 
-   * Choose at what coordinates to start drawing the image.
-   * Use -1 so as not to change the cursor from its current position.
-   * 
-   * <b>Note that a foreground element must be given precise coordinates.</b>
-   * @param matrix The matrix of an obstacle, a map or the player.
-   * @param foreground Is the element on the foreground or the background?
-   * @param cursorX The X-coordinate at which to start drawing the image.
-   * @param cursorY The Y-coordinate at which to start drawing the image.
-   * @param objectX The X-coordinate of the object within the map itself.
-   * @param objectY The Y-coordinate of the object within the map itself.
-   */
-  private void displayMatrix(ArrayList<ArrayList<Integer>> matrix, boolean foreground, int cursorX, int cursorY, int objectX, int objectY) {
-    boolean useCoordinates = cursorX != 1 && cursorY != 1 && objectX != -1 && objectY != -1;
-    if (useCoordinates) {
-      moveCursorTo(cursorX, cursorY);
-    }
-    int mapHeight = matrix.size();
-    int mapWidth = matrix.get(0).size();
-    for (int lig = 0; lig < mapHeight; lig++) {
-      for (int col = 0; col < mapWidth; col++) {
-        int n = matrix.get(lig).get(col);
-        if (n == -1) {
-          if (foreground) {
-            int colorIndexOfBehind = getMapMatrix(currentMapName).get(objectY + lig - PIXEL_SIZE).get(objectX / PIXEL_SIZE + col);
-            if (colorIndexOfBehind == -1) {
-              printTransparentPixel();
-            } else {
-              printPixel(allColors.get(colorIndexOfBehind));
-            }
-          } else {
-            printTransparentPixel();
-          }
-        } else {
-          printPixel(allColors.get(n));
+   * Draws a state of the world into the frame, then sends it to the console.
+   * Only the rectangles where a sprite moved are drawn again:
+   * the background is copied in them, then the obstacles and the player are drawn on top of it.
+   * Within these rectangles, only the cells that changed since the previous frame are written.
+   * If the camera moved, the cells of the background whose color changed are drawn again too.
+   * @param snapshot The state of the world to draw.
+   */
+  private void renderFrame(WorldSnapshot snapshot) {
+    long start = System.nanoTime();
+    if (viewport.scrollTo(snapshot.getCameraX())) {
+      if (viewport.getShift() > 0) {
+        // the encoded background follows the shift, and only the cells whose color changed are drawn again
+        renderer.scrollBackground(background, viewport.getShift());
+        for (int y = 0; y < frame.getHeight(); y++) {
+          dirtyRegions.add(viewport.getChangedFrom(y), y, viewport.getChangedTo(y) - viewport.getChangedFrom(y), 1);
         }
-      }
-      println(""); // jump a line
-      if (useCoordinates) {
-        moveCursorTo(cursorX, ++cursorY); // replaces the cursor on the same X shift, and one line below the previous one
+      } else {
+        // the camera jumped: the background is encoded again and the whole frame is drawn
+        renderer.setBackground(background);
+        dirtyRegions.add(0, 0, frame.getWidth(), frame.getHeight());
       }
     }
+    for (int i = 0; i < snapshot.getObstacleCount(); i++) {
+      addSprite(snapshot.getObstacleMatrix(i), getScreenX(snapshot, snapshot.getObstacleX(i)), snapshot.getObstacleY(i));
+    }
+    addSprite(snapshot.getPlayerSkin(), getPlayerAbsoluteX(snapshot), getPlayerAbsoluteY(snapshot));
+    dirtyRegions.update();
+    for (int r = 0; r < dirtyRegions.size(); r++) {
+      frame.copyRegionFrom(background, dirtyRegions.getX(r), dirtyRegions.getY(r), dirtyRegions.getWidth(r), dirtyRegions.getHeight(r));
+    }
+    for (int i = 0; i < snapshot.getObstacleCount(); i++) {
+      displayMatrix(snapshot.getObstacleMatrix(i), getScreenX(snapshot, snapshot.getObstacleX(i)), snapshot.getObstacleY(i));
+    }
+    displayPlayer(snapshot);
+    renderer.render(frame, dirtyRegions);
+    dirtyRegions.clear();
+    metrics.recordFrame(System.nanoTime() - start, renderer.getLastFrameBytes());
+    if (hudEnabled && start - nextHudTime >= 0) {
+      displayHud();
+      nextHudTime = start + HUD_REFRESH_DELAY;
+    }
   }
 
   /**
-   * Creates a colored pixel.
-   * @param color The color to use for this pixel.
+   * Forgets the buffers of the last map, including its encoded background.
    */
-  private void printPixel(Color color) {
-    System.out.print(color.ANSI + PIXEL + ANSI_RESET);
+  private void forgetMap() {
+    renderer.setBackground(null);
+    viewport = null;
+    background = null;
+    frame = null;
+    dirtyRegions = null;
   }
 
   /**
-   * Adds an empty space whose background color is the same as the terminal.
-   * The exact color of the console is unknown, but ANSI allows us to use a special character for this.
+   * Declares an image drawn in the current frame, so that `dirtyRegions` knows if it moved.
+   * @param matrix The image.
+   * @param cursorX The X-coordinate, in the console, at which the image is drawn.
+   * @param cursorY The Y-coordinate, in the console, at which the image is drawn.
    */
-  private void printTransparentPixel() {
-    System.out.print(ANSI_BG_DEFAULT_COLOR + PIXEL + ANSI_RESET);
+  private void addSprite(Raster matrix, int cursorX, int cursorY) {
+    dirtyRegions.addSprite(matrix, cursorX - 1, cursorY - MAP_SCREEN_Y, matrix.getWidth() * PIXEL_SIZE, matrix.getHeight());
   }
 
   /**
-   * Places the player on the map at the exact player's coordinates.
+   * Displays the metrics of the frames on the line under the map.
    */
-  private void displayPlayer() {
-    displayMatrix(playerCurrentMatrix, true, getPlayerAbsoluteX(), getPlayerAbsoluteY(), playerX, playerY);
+  private void displayHud() {
+    Terminal.moveCursorTo(1, MAP_SCREEN_Y + renderer.getScreenHeight());
+    Terminal.print(metrics.getHudLine() + "\u001b[K"); // the end of the line is erased, in case the previous text was longer
   }
 
   /**
-   * Gets the actual X coordinate of the player in the screen.
-   * @return The current X coordinate.
+   * Places the player on the map at the exact player's coordinates.
+   * @param snapshot The state of the world being drawn.
    */
-  private int getPlayerAbsoluteX() {
-    return playerX + 1;
+  private void displayPlayer(WorldSnapshot snapshot) {
+    displayMatrix(snapshot.getPlayerSkin(), getPlayerAbsoluteX(snapshot), getPlayerAbsoluteY(snapshot));
   }
 
   /**
-   * Gets the actual Y coordinate of the player in the screen.
-   * @return The current Y coordinate of the player.
+   * Gets the actual X coordinate of the player in the screen.
+   * @param snapshot The state of the world being drawn.
+   * @return The X coordinate of the player in this state.
    */
-  private int getPlayerAbsoluteY() {
-    return playerY;
+  private int getPlayerAbsoluteX(WorldSnapshot snapshot) {
+    return getScreenX(snapshot, snapshot.getPlayerX()) + 1;
   }
 
   /**
-   * Removes the player from the foreground.
-   * It replaces the pixels by those that should be "behind" the player.
+   * Converts an X-coordinate of the map (see `World`) into one of the viewport, according to the camera.
+   * @param snapshot The state of the world being drawn.
+   * @param mapX The X-coordinate in the map, in characters.
+   * @return The X-coordinate in the viewport, in characters.
    */
-  private void removePlayerFromScreen() {
-    int absX = getPlayerAbsoluteX();
-    int absY = getPlayerAbsoluteY(); // it will get incremented as we remove the player's pixels line by line
-    removeElementFromForeground(playerCurrentMatrix, absX, absY, playerX, playerY);
+  private int getScreenX(WorldSnapshot snapshot, int mapX) {
+    return mapX - snapshot.getCameraX() * PIXEL_SIZE;
   }
 
   /**
-   * Removes an element from the foreground.
-   * This way, the element shall not be replaced with transparent pixels,
-   * but rather the pixels that should be "behind" the element itself,
-   * from the current background's matrix.
-   * @param matrix The element's matrix to be removed
-   * @param absX The X position where to place the cursor.
-   * @param absY The Y position where to place the cursor.
-   * @param x The X position of the element in the map.
-   * @param y The Y position of the element in the map.
-   */
-  private void removeElementFromForeground(ArrayList<ArrayList<Integer>> matrix, int absX, int absY, int x, int y) {
-    moveCursorTo(absX, absY);
-    ArrayList<ArrayList<Integer>> background = getMapMatrix(currentMapName);
-    int elementHeight = matrix.size();
-    int elementWidth = matrix.get(0).size();
-    for (int line = 0; line < elementHeight; line++) {
-      for (int col = 0; col < elementWidth; col++) {
-        int colorIndex = background.get(y + line - PIXEL_SIZE).get(x / PIXEL_SIZE + col);
-        if (colorIndex == -1) {
-          printTransparentPixel();
-        } else {
-          printPixel(allColors.get(colorIndex));
-        }
-      }
-      println("");
-      moveCursorTo(absX, ++absY);
-    }
-  }
-
-  /**
-   * Makes the player jump.
-   * @param step
+   * Gets the actual Y coordinate of the player in the screen.
+   * @param snapshot The state of the world being drawn.
+   * @return The Y coordinate of the player in this state.
    */
-  private void jump() {
-    if (!canJump) {
-      return;
-    }
-    canJump = false;
-    /**
-     * So as not to interrupt the normal game execution when jumping,
-     * we execute the code responsible of making the player jump in another thread.
-     * This way, we can do other actions while jumping (like quitting the game or moving the obstacles).
-     */
-    jumpThread = new Thread() {
-      public void run() {
-        saveCursorPosition();
-        try {
-          // going up
-          for (int i = 0; i < JUMP_HEIGHT; i++) {
-            removePlayerFromScreen();
-            playerY -= 1;
-            displayPlayer();
-            Thread.sleep(JUMP_DELAY_BETWEEN_EACH_FRAME);
-          }
-          // going down
-          for (int i = 0; i < JUMP_HEIGHT; i++) {
-            removePlayerFromScreen();
-            playerY += 1;
-            displayPlayer();
-            Thread.sleep(JUMP_DELAY_BETWEEN_EACH_FRAME);
-          }
-          canJump = true;
-          restoreCursorPosition();
-        } catch (InterruptedException ignore) { }
-      }
-    };
-    jumpThread.start();
+  private int getPlayerAbsoluteY(WorldSnapshot snapshot) {
+    return snapshot.getPlayerY();
   }
 
   public static void main(String[] args) {
     Game game = new Game();
+    for (String arg : args) {
+      if (arg.startsWith("--startup-report=")) {
+        game.startupReportPath = arg.substring("--startup-report=".length());
+      } else if (arg.startsWith("--metrics=")) {
+        game.metricsPath = arg.substring("--metrics=".length());
+      } else if (arg.equals("--hud")) {
+        game.hudEnabled = true;
+      } else if (arg.startsWith("--seed=")) {
+        game.endlessSeed = Long.parseLong(arg.substring("--seed=".length()));
+      } else if (arg.equals("--half-blocks")) {
+        game.halfBlocks = true;
+      } else if (arg.startsWith("--colors=")) {
+        ColorDepth depth = ColorDepth.fromName(arg.substring("--colors=".length()));
+        if (depth == null) {
+          System.out.println("Unknown color depth: " + arg + " (truecolor, 256 or 16).");
+          return;
+        }
+        game.colorDepth = depth;
+      } else if (arg.startsWith("--replay=")) {
+        game.replayPath = arg.substring("--replay=".length());
+      }
+    }
     game.start(); 
   }
-}
+}
\ No newline at end of file
@@ -17,9 +17,13 @@ public abstract class GameMenu {
 	public static final int LEFT_MARGIN = 76;
 	public static final int LEFT_X = LEFT_MARGIN - 1;
 
-	public static int min_selector_y = -1;
-	public static int max_selector_y = 100;
-	public static int current_selector_y = 0;
+	/**
+	 * The lines of the console between which the selector moves, and the line it's on.
+	 * They belong to each menu, and they're only read and modified by the thread handling the keys.
+	 */
+	private int minSelectorY = -1;
+	private int maxSelectorY = 100;
+	private int selectorY = 0;
 
 	/**
 	 * The possible choices that the user can select in this menu.
@@ -48,9 +52,9 @@ public abstract class GameMenu {
 		createChoices();
 		drawSpace(8);
 		displayQuitMessage();
-		min_selector_y = logo_height + 8 + 2; // it's because we clear the screen sometimes, the console starts with two lines.
-		max_selector_y = logo_height + 8 + 1 + choices.length;
-		current_selector_y = min_selector_y;
+		minSelectorY = logo_height + 8 + 2; // it's because we clear the screen sometimes, the console starts with two lines.
+		maxSelectorY = logo_height + 8 + 1 + choices.length;
+		selectorY = minSelectorY;
 	}
 
 	/**
@@ -66,16 +70,33 @@ public abstract class GameMenu {
 	 * Can the user select something above the current position?
 	 * @return True if there is an option above the current one.
 	 */
-	protected static boolean canGoUp() {
-		return current_selector_y != min_selector_y;
+	protected boolean canGoUp() {
+		return selectorY != minSelectorY;
 	}
 
 	/**
 	 * Can the user select something below the current position?
 	 * @return True if there is an option below the current one.
 	 */
-	protected static boolean canGoDown() {
-		return current_selector_y != max_selector_y;
+	protected boolean canGoDown() {
+		return selectorY != maxSelectorY;
+	}
+
+	/**
+	 * Moves the selector to the option above or below the current one.
+	 * Nothing is drawn: the caller erases the arrow at the previous position and draws it at the new one.
+	 * @param delta `-1` to go up, `1` to go down.
+	 */
+	protected void moveSelector(int delta) {
+		selectorY += delta;
+	}
+
+	/**
+	 * Gets the line of the console on which the selector is.
+	 * @return The Y-position of the selector.
+	 */
+	protected int getSelectorY() {
+		return selectorY;
 	}
 
 	/**
@@ -84,7 +105,7 @@ public abstract class GameMenu {
 	 * @return The selected page.
 	 */
 	protected Page getSelectedPage() {
-		return choices[current_selector_y - min_selector_y];
+		return choices[selectorY - minSelectorY];
 	}
 
 	/**
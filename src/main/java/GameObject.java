@@ -1,7 +1,5 @@
 package main.java;
 
-import java.util.ArrayList;
-
 public abstract class GameObject {
   /**
    * The unique name of the map.
@@ -11,9 +9,9 @@ public abstract class GameObject {
   /**
    * The matrix of the map (each cell is the index of a color in the pallet)
    */
-  protected ArrayList<ArrayList<Integer>> matrix;
+  protected Raster matrix;
 
-  public GameObject(String name, ArrayList<ArrayList<Integer>> matrix) {
+  public GameObject(String name, Raster matrix) {
     this.name = name;
     this.matrix = matrix;
   }
@@ -23,11 +21,9 @@ public abstract class GameObject {
    * @return The dimensions of the matrix.
    */
   public int[] getMatrixDimensions() {
-    int mapHeight = matrix.size();
-    int mapWidth = matrix.get(0).size();
-    return new int[]{ mapWidth, mapHeight };
+    return new int[]{ matrix.getWidth(), matrix.getHeight() };
   }
 
   public String getName() { return this.name; }
-  public ArrayList<ArrayList<Integer>> getMatrix() { return this.matrix; }
+  public Raster getMatrix() { return this.matrix; }
 }
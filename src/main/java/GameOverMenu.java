@@ -5,6 +5,22 @@ import java.util.ArrayList;
 public class GameOverMenu extends GameMenu {
   private static final String GAME_OVER_PATH = "assets/menu/game_over.txt";
 
+  /**
+   * How long the player survived, in milliseconds of game, or `-1` if it's not displayed (in the arcade mode).
+   */
+  private final long survivedTime;
+
+  public GameOverMenu() {
+    this(-1);
+  }
+
+  /**
+   * @param survivedTime How long the player survived in the endless mode, in milliseconds of game.
+   */
+  public GameOverMenu(long survivedTime) {
+    this.survivedTime = survivedTime;
+  }
+
   @Override
   protected void display() {
     drawSpace(5);
@@ -15,7 +31,11 @@ public class GameOverMenu extends GameMenu {
     }
     drawSpace(5);
     printCenteredText("C'est dommage...", width);
-    printCenteredText("Tu dois tout recommencer !", width);
+    if (survivedTime >= 0) {
+      printCenteredText(String.format("Tu as survécu %.1f secondes.", survivedTime / 1000.0), width);
+    } else {
+      printCenteredText("Tu dois tout recommencer !", width);
+    }
     drawSpace(5);
     displayQuitMessage();
   }
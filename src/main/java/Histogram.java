@@ -0,0 +1,87 @@
+package main.java;
+
+/**
+ * Counts values (durations, numbers of bytes...) to know their distribution, without keeping each of them.
+ *
+ * The values are counted in buckets whose size grows with the values:
+ * each power of two is split into `SUB_BUCKETS` buckets of the same size,
+ * so a value is known with a precision of about 12%, whatever its magnitude.
+ * Recording a value is only a few operations on an array, and nothing is allocated.
+ */
+public class Histogram {
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  private final long[] counts = new long[64 * SUB_BUCKETS];
+  private long count = 0;
+  private long sum = 0;
+  private long min = Long.MAX_VALUE;
+  private long max = 0;
+
+  /**
+   * Counts a value.
+   * @param value The value, negative values are counted as `0`.
+   */
+  public void record(long value) {
+    value = Math.max(0, value);
+    counts[getIndex(value)]++;
+    count++;
+    sum += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Gets the bucket of a value.
+   * The values below `SUB_BUCKETS` have their own bucket.
+   */
+  private static int getIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int)value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int)(value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Gets the highest value that can be counted in a bucket.
+   */
+  private static long getUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+    long sub = index % SUB_BUCKETS;
+    return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+  }
+
+  /**
+   * Gets the value below which a given percentage of the values are.
+   * @param percentile The percentage, between 0 and 100.
+   * @return The value, or `0` if nothing was recorded.
+   */
+  public long getPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long)Math.ceil(count * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.max(min, Math.min(max, getUpperBound(i)));
+      }
+    }
+    return max;
+  }
+
+  public double getMean() {
+    return count == 0 ? 0 : (double)sum / count;
+  }
+
+  public long getCount() { return this.count; }
+  public long getSum() { return this.sum; }
+  public long getMin() { return this.count == 0 ? 0 : this.min; }
+  public long getMax() { return this.max; }
+}
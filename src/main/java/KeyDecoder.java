@@ -0,0 +1,150 @@
+package main.java;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Turns the bytes typed in a console in raw mode into key events.
+ *
+ * Most keys are a single byte, but the special keys are sent as escape sequences:
+ * the up arrow is `ESC [ A` (or `ESC O A`, depending on the mode of the console).
+ * A sequence can be cut between two reads, so the decoder remembers where it is from one call to the next.
+ * The sequences with parameters (`ESC [ 1 ; 5 A` for Ctrl + up arrow) are read entirely,
+ * and the ones that the game doesn't know are skipped instead of being typed as normal keys.
+ *
+ * The console also answers some questions of the game this way (see `Screen`):
+ * the answer `ESC [ ? 2026 ; n $ y` says that the console supports the synchronized updates,
+ * it becomes the event `KeyEvent.SYNCHRONIZED_UPDATES`.
+ *
+ * Escape alone can't be told apart from the beginning of a sequence until the next byte arrives.
+ * An escape that is the last byte of a read stays pending: if the next read continues it, it's a sequence,
+ * otherwise the reader calls `endEscape()` once nothing arrived for `ESCAPE_DELAY`, and it's Escape.
+ */
+public class KeyDecoder {
+  private static final int NORMAL = 0;
+  private static final int ESCAPE = 1; // after ESC
+  private static final int SEQUENCE = 2; // after ESC [ or ESC O
+
+  /**
+   * The answer of a console that knows the mode of the synchronized updates (`n` is 1 if it's on, 2 if it's off).
+   */
+  private static final String SYNCHRONIZED_UPDATES_ANSWER = "?2026;";
+
+  /**
+   * How long to wait for the rest of a sequence after an escape, in nanoseconds.
+   * A console sends a sequence all at once, so it's only cut between two reads by chance, and the rest follows right away.
+   */
+  public static final long ESCAPE_DELAY = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private final Consumer<KeyEvent> output;
+  private int state = NORMAL;
+
+  /**
+   * The time at which the pending escape was read.
+   */
+  private long escapeTime = 0;
+
+  /**
+   * The parameters of the current sequence (only the first ones, the longer sequences are never answers).
+   */
+  private final StringBuilder parameters = new StringBuilder();
+
+  /**
+   * @param output What to do with each decoded key.
+   */
+  public KeyDecoder(Consumer<KeyEvent> output) {
+    this.output = output;
+  }
+
+  /**
+   * Decodes the bytes of a read.
+   * @param bytes The bytes read from the console.
+   * @param length The number of bytes read.
+   * @param time The time, according to `System.nanoTime()`, at which they were read.
+   */
+  public void decode(byte[] bytes, int length, long time) {
+    for (int i = 0; i < length; i++) {
+      decode(bytes[i] & 0xFF, time);
+    }
+  }
+
+  /**
+   * Is the last byte decoded an escape that may be the beginning of a sequence?
+   * @return `true` if `endEscape()` must be called if nothing else arrives.
+   */
+  public boolean isEscapePending() {
+    return state == ESCAPE;
+  }
+
+  /**
+   * Decides that the pending escape was typed alone, because nothing followed it.
+   * The event gets the time at which the escape was read.
+   */
+  public void endEscape() {
+    if (state == ESCAPE) {
+      state = NORMAL;
+      output.accept(new KeyEvent(KeyEvent.ESCAPE, escapeTime));
+    }
+  }
+
+  private void decode(int b, long time) {
+    switch (state) {
+      case ESCAPE:
+        if (b == '[' || b == 'O') {
+          state = SEQUENCE;
+          parameters.setLength(0);
+          return;
+        }
+        // Alt + key, or Escape followed by another key: both are typed
+        output.accept(new KeyEvent(KeyEvent.ESCAPE, time));
+        state = NORMAL;
+        break;
+      case SEQUENCE:
+        if (b >= 0x20 && b <= 0x3F) {
+          if (parameters.length() < 16) {
+            parameters.append((char)b);
+          }
+          return; // a parameter, or an intermediate byte
+        }
+        state = NORMAL;
+        int code = b == 'y' ? getAnswer(parameters.toString()) : getSequenceKey(b);
+        if (code >= 0) {
+          output.accept(new KeyEvent(code, time));
+        }
+        return;
+    }
+    if (b == KeyEvent.ESCAPE) {
+      state = ESCAPE;
+      escapeTime = time;
+    } else {
+      output.accept(new KeyEvent(b, time));
+    }
+  }
+
+  /**
+   * Gets the event of an answer to a question about a mode of the console (`ESC [ ? mode ; n $ y`).
+   * @param parameters What's between `ESC [` and `y`.
+   * @return The event, or `-1` if the mode isn't supported (`n` is 0 or 4) or not used by the game.
+   */
+  private static int getAnswer(String parameters) {
+    if (parameters.equals(SYNCHRONIZED_UPDATES_ANSWER + "1$") || parameters.equals(SYNCHRONIZED_UPDATES_ANSWER + "2$")) {
+      return KeyEvent.SYNCHRONIZED_UPDATES;
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the key of an escape sequence from its last byte.
+   * @param b The last byte of the sequence.
+   * @return The key code, or `-1` if the key isn't used by the game.
+   */
+  private static int getSequenceKey(int b) {
+    switch (b) {
+      case 'A': return KeyEvent.UP;
+      case 'B': return KeyEvent.DOWN;
+      case 'C': return KeyEvent.RIGHT;
+      case 'D': return KeyEvent.LEFT;
+      default: return -1;
+    }
+  }
+}
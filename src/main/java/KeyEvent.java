@@ -0,0 +1,38 @@
+package main.java;
+
+/**
+ * A key typed by the user, and the moment it was read from the console.
+ * The escape sequences of the special keys (the arrows) are already decoded: an arrow is a single event.
+ */
+public final class KeyEvent {
+  public static final int ESCAPE = 27;
+  public static final int UP = 17;
+  public static final int DOWN = 18;
+  public static final int RIGHT = 19;
+  public static final int LEFT = 20;
+
+  /**
+   * Not a key: the console answered that it supports the synchronized updates (see `Screen`).
+   */
+  public static final int SYNCHRONIZED_UPDATES = 0x10000;
+
+  private final int code;
+  private final long time;
+
+  /**
+   * @param code The unique key code of the key (its character, or one of the constants of this class).
+   * @param time The time, according to `System.nanoTime()`, at which the key was read.
+   */
+  public KeyEvent(int code, long time) {
+    this.code = code;
+    this.time = time;
+  }
+
+  public int getCode() { return this.code; }
+  public long getTime() { return this.time; }
+
+  @Override
+  public String toString() {
+    return "KeyEvent(" + code + " at " + time + ")";
+  }
+}
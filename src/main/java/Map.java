@@ -1,12 +1,87 @@
 package main.java;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 /**
  * One map in the game (its name and its matrix).
+ *
+ * A very wide map isn't decoded: its pixels stay in the memory-mapped pack (see `AssetPack`),
+ * and only the columns around the camera are read from there (see `MapChunks`).
+ * Such a map doesn't have a matrix, its pixels are read with `readColumns()`.
  */
 public class Map extends GameObject {
-  public Map(String name, ArrayList<ArrayList<Integer>> matrix) {
+  private final int width;
+  private final int height;
+
+  /**
+   * The pixels of a streamed map, line by line, or `null` if the map is decoded in `matrix`.
+   */
+  private final ByteBuffer pixels;
+
+  public Map(String name, Raster matrix) {
     super(name, matrix);
+    this.width = matrix.getWidth();
+    this.height = matrix.getHeight();
+    this.pixels = null;
+  }
+
+  /**
+   * Creates a map whose pixels are read from a buffer only when they're needed.
+   * @param name The name of the map.
+   * @param width The width of the map, in pixels.
+   * @param height The height of the map.
+   * @param pixels The pixels, line by line (`width * height` bytes), usually a slice of the memory-mapped pack.
+   */
+  public Map(String name, int width, int height, ByteBuffer pixels) {
+    super(name, null);
+    this.width = width;
+    this.height = height;
+    this.pixels = pixels;
+  }
+
+  /**
+   * Copies some columns of the map, from every line.
+   * @param x The first column.
+   * @param count The number of columns.
+   * @param dest Where to copy them.
+   * @param destStride The number of bytes between two lines in `dest`.
+   */
+  public void readColumns(int x, int count, byte[] dest, int destStride) {
+    // a view of the pixels, so that moving its position doesn't disturb the other readers of the buffer
+    ByteBuffer view = pixels != null ? pixels.duplicate() : null;
+    for (int y = 0; y < height; y++) {
+      if (view != null) {
+        view.position(y * width + x);
+        view.get(dest, y * destStride, count);
+      } else {
+        System.arraycopy(matrix.getPixels(), y * matrix.getStride() + x, dest, y * destStride, count);
+      }
+    }
   }
-}
\ No newline at end of file
+
+  /**
+   * Gets the matrix of the map, decoding it if it's streamed.
+   * It's only meant for the tools (the whole map is in memory afterwards).
+   * @return The matrix.
+   */
+  public Raster decode() {
+    if (matrix != null) {
+      return matrix;
+    }
+    Raster decoded = new Raster(width, height);
+    readColumns(0, width, decoded.getPixels(), width);
+    return decoded;
+  }
+
+  /**
+   * Gets the number of bytes of the map that are in the memory of the game (0 if it's streamed).
+   * @return The size of the decoded matrix.
+   */
+  public long getDecodedSize() {
+    return pixels != null ? 0 : (long)width * height;
+  }
+
+  public boolean isStreamed() { return this.pixels != null; }
+  public int getWidth() { return this.width; }
+  public int getHeight() { return this.height; }
+}
@@ -0,0 +1,216 @@
+package main.java;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The maps of the game, decoded only when they're needed.
+ *
+ * Each map is registered with its size and a way to decode it (from its CSV file or from the pack),
+ * and it's only decoded the first time it's asked for. Its size is known without decoding it.
+ * The decoded maps are kept in a cache that is bounded by the number of pixels it holds:
+ * once it's full, the map that was used the longest time ago is forgotten.
+ * This way, the memory doesn't depend on the number of maps in the `assets` folder.
+ *
+ * A map can also be decoded in the background (`preload()`),
+ * for example while the player is choosing it in the menu.
+ */
+public class MapCache {
+  /**
+   * The default maximum number of pixels kept in the cache (one byte each).
+   */
+  public static final long DEFAULT_MAX_BYTES = 4L << 20;
+
+  /**
+   * Something that decodes a single map.
+   */
+  public interface MapLoader {
+    Map load(String name) throws IOException;
+  }
+
+  private final long maxBytes;
+  private final HashMap<String, MapLoader> loaders = new HashMap<>();
+
+  /**
+   * The width and the height of each registered map.
+   */
+  private final HashMap<String, int[]> sizes = new HashMap<>();
+
+  /**
+   * The decoded maps, from the least recently used to the most recently used.
+   */
+  private final LinkedHashMap<String, Map> maps = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * The maps being decoded in the background.
+   */
+  private final HashMap<String, Future<Map>> pending = new HashMap<>();
+
+  private ExecutorService preloader = null;
+
+  private long bytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  public MapCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  public MapCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * Declares a map, without decoding it.
+   * @param name The name of the map.
+   * @param width The width of the map, in pixels.
+   * @param height The height of the map, in pixels.
+   * @param loader How to decode the map.
+   */
+  public synchronized void register(String name, int width, int height, MapLoader loader) {
+    loaders.put(name, loader);
+    sizes.put(name, new int[]{ width, height });
+  }
+
+  /**
+   * Gets the names of all the maps that can be loaded.
+   * @return The names of the maps.
+   */
+  public synchronized Set<String> getNames() {
+    return new HashSet<>(loaders.keySet());
+  }
+
+  /**
+   * Decodes a map without putting it in the cache.
+   * @param name The name of the map.
+   * @return The map.
+   * @throws IOException If the map doesn't exist or can't be decoded.
+   */
+  public Map load(String name) throws IOException {
+    MapLoader loader;
+    synchronized (this) {
+      loader = loaders.get(name);
+    }
+    if (loader == null) {
+      throw new IOException("Unknown map: " + name);
+    }
+    return loader.load(name);
+  }
+
+  /**
+   * Gets a map, and decodes it if it isn't in the cache.
+   * If it's being decoded in the background, it waits for it.
+   * @param name The name of the map.
+   * @return The map.
+   * @throws IOException If the map doesn't exist or can't be decoded.
+   */
+  public Map get(String name) throws IOException {
+    Future<Map> loading;
+    synchronized (this) {
+      Map map = maps.get(name);
+      if (map != null) {
+        hits++;
+        return map;
+      }
+      misses++;
+      loading = pending.get(name);
+    }
+    if (loading == null) {
+      Map map = load(name);
+      put(name, map);
+      return map;
+    }
+    try {
+      return loading.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException ? (IOException)e.getCause() : new IOException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Starts decoding a map in the background, if it isn't already in the cache.
+   * @param name The name of the map.
+   */
+  public synchronized void preload(String name) {
+    if (maps.containsKey(name) || pending.containsKey(name) || !loaders.containsKey(name)) {
+      return;
+    }
+    if (preloader == null) {
+      preloader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "map-preloader");
+        thread.setDaemon(true); // it mustn't prevent the game from being terminated
+        return thread;
+      });
+    }
+    pending.put(name, preloader.submit(() -> {
+      try {
+        Map map = load(name);
+        put(name, map);
+        return map;
+      } finally {
+        synchronized (this) {
+          pending.remove(name);
+        }
+      }
+    }));
+  }
+
+  /**
+   * Adds a decoded map to the cache, and forgets the least recently used maps if the cache is full.
+   * The map that was just added is always kept, even if it's bigger than the cache.
+   */
+  private synchronized void put(String name, Map map) {
+    if (maps.containsKey(name)) {
+      return;
+    }
+    maps.put(name, map);
+    bytes += getSize(map);
+    Iterator<Map> eldest = maps.values().iterator();
+    while (bytes > maxBytes && maps.size() > 1) {
+      bytes -= getSize(eldest.next());
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  private static long getSize(Map map) {
+    return map.getDecodedSize(); // a streamed map stays in the pack
+  }
+
+  /**
+   * Gets the width of a map, without decoding it.
+   * @param name The name of the map.
+   * @return The width, in pixels, or 0 if there's no such map.
+   */
+  public synchronized int getWidth(String name) {
+    int[] size = sizes.get(name);
+    return size != null ? size[0] : 0;
+  }
+
+  /**
+   * Gets the height of a map, without decoding it.
+   * @param name The name of the map.
+   * @return The height, in pixels, or 0 if there's no such map.
+   */
+  public synchronized int getHeight(String name) {
+    int[] size = sizes.get(name);
+    return size != null ? size[1] : 0;
+  }
+
+  public synchronized long getBytes() { return this.bytes; }
+  public synchronized long getHits() { return this.hits; }
+  public synchronized long getMisses() { return this.misses; }
+  public synchronized long getEvictions() { return this.evictions; }
+}
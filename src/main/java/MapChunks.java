@@ -0,0 +1,119 @@
+package main.java;
+
+import java.util.Arrays;
+
+/**
+ * The columns of a map around the camera, read in chunks of `CHUNK_WIDTH` columns.
+ *
+ * There's a fixed number of slots, allocated once: enough for the chunks the viewport covers,
+ * plus `ahead` chunks after it, which are read before the camera gets there.
+ * The chunks behind the camera are evicted to make room for the next ones,
+ * so the memory doesn't depend on the width of the map, only on the width of the viewport.
+ */
+public class MapChunks {
+  /**
+   * The number of columns of a chunk.
+   */
+  public static final int CHUNK_WIDTH = 64;
+
+  private final Map map;
+
+  /**
+   * The pixels of each slot, line by line (`CHUNK_WIDTH` bytes per line).
+   */
+  private final byte[][] slots;
+
+  /**
+   * The chunk in each slot, or `-1` if the slot is free.
+   */
+  private final int[] chunkIndexes;
+
+  private final int viewportWidth;
+  private final int ahead;
+
+  private long loads = 0;
+  private long evictions = 0;
+
+  /**
+   * @param map The map.
+   * @param viewportWidth The number of columns displayed at the same time.
+   * @param ahead The number of chunks read after the viewport.
+   */
+  public MapChunks(Map map, int viewportWidth, int ahead) {
+    this.map = map;
+    this.viewportWidth = viewportWidth;
+    this.ahead = ahead;
+    int count = (viewportWidth + CHUNK_WIDTH - 1) / CHUNK_WIDTH + 1 + ahead; // the viewport can overlap one more chunk
+    this.slots = new byte[count][CHUNK_WIDTH * map.getHeight()];
+    this.chunkIndexes = new int[count];
+    Arrays.fill(chunkIndexes, -1);
+  }
+
+  /**
+   * Evicts the chunks that are behind the camera, and reads the ones it's about to need.
+   * @param cameraX The first column of the viewport.
+   */
+  public void moveTo(int cameraX) {
+    int first = cameraX / CHUNK_WIDTH;
+    int last = Math.min((cameraX + viewportWidth - 1) / CHUNK_WIDTH + ahead, (map.getWidth() - 1) / CHUNK_WIDTH);
+    for (int i = 0; i < chunkIndexes.length; i++) {
+      if (chunkIndexes[i] != -1 && (chunkIndexes[i] < first || chunkIndexes[i] > last)) {
+        chunkIndexes[i] = -1;
+        evictions++;
+      }
+    }
+    for (int chunk = first; chunk <= last; chunk++) {
+      getChunk(chunk);
+    }
+  }
+
+  /**
+   * Gets the pixels of a chunk, and reads them if they aren't in a slot yet.
+   * @param chunk The index of the chunk (its first column divided by `CHUNK_WIDTH`).
+   * @return The pixels of the chunk, line by line (`CHUNK_WIDTH` bytes per line).
+   */
+  public byte[] getChunk(int chunk) {
+    int free = -1;
+    for (int i = 0; i < chunkIndexes.length; i++) {
+      if (chunkIndexes[i] == chunk) {
+        return slots[i];
+      }
+      if (chunkIndexes[i] == -1 && free == -1) {
+        free = i;
+      }
+    }
+    if (free == -1) {
+      // only if the caller didn't call `moveTo()` first: the chunk that is the furthest from this one is evicted
+      free = 0;
+      for (int i = 1; i < chunkIndexes.length; i++) {
+        if (Math.abs(chunkIndexes[i] - chunk) > Math.abs(chunkIndexes[free] - chunk)) {
+          free = i;
+        }
+      }
+      evictions++;
+    }
+    int x = chunk * CHUNK_WIDTH;
+    map.readColumns(x, Math.min(CHUNK_WIDTH, map.getWidth() - x), slots[free], CHUNK_WIDTH);
+    chunkIndexes[free] = chunk;
+    loads++;
+    return slots[free];
+  }
+
+  /**
+   * Gets the number of chunks currently read.
+   * @return The number of slots in use.
+   */
+  public int getLoadedCount() {
+    int count = 0;
+    for (int chunk : chunkIndexes) {
+      if (chunk != -1) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public int getCapacity() { return this.slots.length; }
+  public long getLoads() { return this.loads; }
+  public long getEvictions() { return this.evictions; }
+}
@@ -1,8 +1,7 @@
 package main.java;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
 
 /**
  * Its a class which contains all obstacles of a map.
@@ -25,34 +24,34 @@ public class MapSpawnConfig {
      * 1. name of the obstacle, which is the name of the CSV file of this particular obstacle.
      * 2. the speed at which the obstacle moves from the right to the left (the delay between each step).
      * 3. the y-shift from the top of the map (so the height of the obstacle)
-     * 4. at what time the obstacle is going to spawn after the beginning of the level.
+     * 4. at what time the obstacle is going to spawn after the beginning of the level, in milliseconds.
+     *    This column is optional: without it, the obstacle spawns once the previous one left the map.
      * @param path The path to the CSV file.
      * @param delimiter The delimiter to use in the CSV file.
      * @return An instance of MapSpawnConfig.
+     * @throws IOException If the file can't be read, or if a value is missing or isn't an integer.
      */
-    public static MapSpawnConfig fromCSV(String path, String delimiter) {
+    public static MapSpawnConfig fromCSV(String path, String delimiter) throws IOException {
         final ArrayList<ObstacleSpawn> list = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
-            reader.readLine();
-            String line = "";
-            while ((line = reader.readLine()) != null) {
-                Scanner scanner = new Scanner(line).useDelimiter(",");
+        try (CsvTokenizer csv = new CsvTokenizer(new FileInputStream(path), delimiter.charAt(0))) {
+            csv.nextRow(); // voluntarily ignoring the header
+            while (csv.nextRow()) {
+                String name = csv.nextString();
+                int speed = csv.nextInt();
+                int y = csv.nextInt();
+                int time = csv.hasNextValue() ? csv.nextInt() : ObstacleSpawn.AFTER_PREVIOUS;
+                if (time < 0 && time != ObstacleSpawn.AFTER_PREVIOUS) {
+                    throw new IOException("row " + csv.getRow() + ", column 4: negative spawn time");
+                }
 
-                String name = scanner.next();
-                int speed = Integer.parseInt(scanner.next());
-                int y = Integer.parseInt(scanner.next());
-                
-                ObstacleSpawn obstacle = new ObstacleSpawn(name, speed, y);
+                ObstacleSpawn obstacle = new ObstacleSpawn(name, speed, y, time);
                 list.add(obstacle);
-                scanner.close();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
         return new MapSpawnConfig(list);
     }
 
-    public static MapSpawnConfig fromCSV(String path) {
+    public static MapSpawnConfig fromCSV(String path) throws IOException {
         return MapSpawnConfig.fromCSV(path, ",");
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package main.java;
+
+/**
+ * An obstacle that was spawned on the map and that moves from the right to the left.
+ * Its coordinates are those of the map, in characters, like the player's (see `World`):
+ * they're only converted to the viewport, according to the camera, when a frame is drawn.
+ *
+ * An instance can be used again for another obstacle once the previous one left the viewport (see `reset()`),
+ * so that spawning an obstacle doesn't allocate anything.
+ */
+public class MovingObstacle {
+  private Obstacle obstacle;
+  private int y;
+  private int x;
+
+  /**
+   * The delay, in milliseconds, between each step to the left.
+   */
+  private long delayBetweenEachStep;
+
+  /**
+   * The time of the game, in milliseconds, at which the next step must happen.
+   */
+  private long nextStepTime;
+
+  public MovingObstacle(Obstacle obstacle, int x, int y, long delayBetweenEachStep, long spawnTime) {
+    reset(obstacle, x, y, delayBetweenEachStep, spawnTime);
+  }
+
+  /**
+   * Makes this instance a new obstacle, that was just spawned.
+   * @param obstacle The obstacle.
+   * @param x The position of the obstacle on the X-axis.
+   * @param y The position of the obstacle on the Y-axis.
+   * @param delayBetweenEachStep The delay, in milliseconds, between each step to the left.
+   * @param spawnTime The time of the game, in milliseconds, at which the obstacle spawns.
+   */
+  public void reset(Obstacle obstacle, int x, int y, long delayBetweenEachStep, long spawnTime) {
+    this.obstacle = obstacle;
+    this.x = x;
+    this.y = y;
+    this.delayBetweenEachStep = delayBetweenEachStep;
+    this.nextStepTime = spawnTime;
+  }
+
+  /**
+   * Is it time for the obstacle to make its next step?
+   * @param time The current time of the game, in milliseconds.
+   * @return `true` if the obstacle is late on its schedule.
+   */
+  public boolean mustStep(long time) {
+    return time >= nextStepTime;
+  }
+
+  /**
+   * Moves the obstacle one character to the left and schedules the next step.
+   * The next step is scheduled from the previous one, and not from the current time,
+   * so that the obstacle keeps the same speed even if the game is late.
+   */
+  public void step() {
+    x--;
+    nextStepTime += Math.max(1, delayBetweenEachStep);
+  }
+
+  public Obstacle getObstacle() { return this.obstacle; }
+  public int getX() { return this.x; }
+  public int getY() { return this.y; }
+}
@@ -1,12 +1,10 @@
 package main.java;
 
-import java.util.ArrayList;
-
 /**
  * One obstacle in the game (its name and its matrix).
  */
 public class Obstacle extends GameObject {
-  public Obstacle(String name, ArrayList<ArrayList<Integer>> matrix) {
+  public Obstacle(String name, Raster matrix) {
     super(name, matrix);
   }
 }
@@ -1,14 +1,31 @@
 package main.java;
 
 public class ObstacleSpawn {
+	/**
+	 * The time of an obstacle that spawns once the previous one left the map, instead of at a given time.
+	 */
+	public static final int AFTER_PREVIOUS = -1;
+
 	private String name;
 	private int speed;
 	private int y;
+	private int time;
 
 	public ObstacleSpawn(String name, int speed, int y) {
+		this(name, speed, y, AFTER_PREVIOUS);
+	}
+
+	/**
+	 * @param name The name of the obstacle.
+	 * @param speed The delay between each step of the obstacle.
+	 * @param y The y-shift from the top of the map.
+	 * @param time The time, in milliseconds since the beginning of the level, at which the obstacle spawns (or `AFTER_PREVIOUS`).
+	 */
+	public ObstacleSpawn(String name, int speed, int y, int time) {
 		this.name = name;
 		this.speed = speed;
 		this.y = y;
+		this.time = time;
 	}
 
 	public String getName() {
@@ -22,4 +39,16 @@ public class ObstacleSpawn {
 	public int getY() {
 		return this.y;
 	}
+
+	public int getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Does the obstacle spawn at a given time?
+	 * @return `false` if it spawns once the previous one left the map.
+	 */
+	public boolean isTimed() {
+		return this.time != AFTER_PREVIOUS;
+	}
 }
\ No newline at end of file
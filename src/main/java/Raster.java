@@ -0,0 +1,57 @@
+package main.java;
+
+/**
+ * A grid of colors (an image) stored in a single array.
+ * Each pixel is the index of a color in the pallet, or `TRANSPARENT`.
+ *
+ * The pixel at (x;y) is at `y * stride + x` in the array.
+ * For now, the stride is always equal to the width,
+ * but it allows a raster to be a window into a bigger one.
+ */
+public class Raster {
+  /**
+   * The value of a pixel that has no color (the console's or the background's color is used instead).
+   */
+  public static final byte TRANSPARENT = -1;
+
+  private final int width;
+  private final int height;
+  private final int stride;
+  private final byte[] pixels;
+
+  public Raster(int width, int height) {
+    this(width, height, width, new byte[width * height]);
+  }
+
+  public Raster(int width, int height, int stride, byte[] pixels) {
+    this.width = width;
+    this.height = height;
+    this.stride = stride;
+    this.pixels = pixels;
+  }
+
+  /**
+   * Gets the color index of a pixel.
+   * @param x The X-coordinate of the pixel.
+   * @param y The Y-coordinate of the pixel.
+   * @return The index of the color in the pallet, or `TRANSPARENT`.
+   */
+  public int get(int x, int y) {
+    return pixels[y * stride + x];
+  }
+
+  /**
+   * Sets the color index of a pixel.
+   * @param x The X-coordinate of the pixel.
+   * @param y The Y-coordinate of the pixel.
+   * @param colorIndex The index of the color in the pallet, or `TRANSPARENT`.
+   */
+  public void set(int x, int y, int colorIndex) {
+    pixels[y * stride + x] = (byte)colorIndex;
+  }
+
+  public int getWidth() { return this.width; }
+  public int getHeight() { return this.height; }
+  public int getStride() { return this.stride; }
+  public byte[] getPixels() { return this.pixels; }
+}
@@ -0,0 +1,379 @@
+package main.java;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Sends the content of a `FrameBuffer` to the console.
+ * It remembers what was sent during the previous frame,
+ * so that only the cells that changed are written, all at once.
+ *
+ * With half blocks, each character of the console shows two lines of the frame:
+ * the upper one is the color of the character `▀`, and the lower one is its background.
+ * It takes half as many lines in the console, and about half as many bytes.
+ */
+public class Renderer {
+  private static final byte[] ANSI_RESET = "\u001b[0m".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] ANSI_BG_DEFAULT_COLOR = "\u001b[49m".getBytes(StandardCharsets.US_ASCII);
+  private static final byte CELL = ' '; // a cell is a single character, the background is then colored using ANSI
+  private static final byte[] UPPER_HALF_BLOCK = "\u2580".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] LOWER_HALF_BLOCK = "\u2584".getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * The color of a line before anything was written on it (it can't be a color of the pallet).
+   */
+  private static final int NO_COLOR = Integer.MIN_VALUE;
+
+  /**
+   * The ANSI sequence of each color of the pallet, in the color depth of the console, encoded once.
+   */
+  private final byte[][] colorSequences;
+
+  /**
+   * The ANSI sequence that gives each color of the pallet to the characters (the half blocks), encoded once.
+   */
+  private final byte[][] foregroundSequences;
+
+  /**
+   * Does each character of the console show two lines of the frame?
+   */
+  private final boolean halfBlocks;
+
+  /**
+   * The position of the first cell (top-left) of the buffer in the console.
+   */
+  private final int screenX;
+  private final int screenY;
+
+  /**
+   * What the console is currently showing, according to the last frame that was sent.
+   */
+  private short[] previous = new short[0];
+  private int width = 0;
+  private int height = 0;
+
+  /**
+   * The background of the current map, already encoded (`null` if there's none).
+   */
+  private BackgroundCache background = null;
+
+  // the bytes of the frame being rendered
+  private int frameBytes = 0;
+  private int frameUncoalescedBytes = 0;
+
+  private long frames = 0;
+  private long totalBytes = 0;
+  private int lastFrameBytes = 0;
+
+  /**
+   * The number of bytes that weren't written thanks to the colors being sent only once per run of cells.
+   */
+  private long totalSavedBytes = 0;
+  private int lastFrameSavedBytes = 0;
+
+  public Renderer(Color[] colors, int screenX, int screenY) {
+    this(colors, ColorDepth.TRUECOLOR, false, screenX, screenY);
+  }
+
+  /**
+   * @param colors The pallet used to convert the color indexes of the cells.
+   * @param depth The colors the console can display. In the indexed modes, each color of the pallet is replaced by the closest one.
+   * @param halfBlocks Should each character of the console show two lines of the frames (with `▀`)?
+   * @param screenX The X-coordinate of the first cell (top-left) of the frames in the console.
+   * @param screenY The Y-coordinate of the first cell of the frames.
+   */
+  public Renderer(Color[] colors, ColorDepth depth, boolean halfBlocks, int screenX, int screenY) {
+    this.colorSequences = new byte[colors.length][];
+    this.foregroundSequences = new byte[colors.length][];
+    for (int i = 0; i < colors.length; i++) {
+      if (colors[i].rgb != null) {
+        colorSequences[i] = depth.encode(colors[i].rgb, true);
+        foregroundSequences[i] = depth.encode(colors[i].rgb, false);
+      } else {
+        // a color created from its ANSI format is written as is, and "48" (background) becomes "38" (foreground)
+        colorSequences[i] = colors[i].ANSI_BYTES;
+        foregroundSequences[i] = colors[i].ANSI.replace("\u001b[48", "\u001b[38").getBytes(StandardCharsets.US_ASCII);
+      }
+    }
+    this.halfBlocks = halfBlocks;
+    this.screenX = screenX;
+    this.screenY = screenY;
+  }
+
+  /**
+   * Forgets what was previously sent and considers that the console only contains the given color.
+   * It must be called each time the console is modified without the renderer (when it's cleared for example).
+   * @param width The width of the frames that will be rendered.
+   * @param height The height of the frames that will be rendered.
+   * @param colorIndex The color the console currently has, usually `FrameBuffer.TRANSPARENT` after a clear.
+   */
+  public void reset(int width, int height, short colorIndex) {
+    this.width = width;
+    this.height = height;
+    this.previous = new short[width * height];
+    Arrays.fill(previous, colorIndex);
+  }
+
+  /**
+   * Encodes the background of the frames, so that the cells that show it again are written as a slice of it.
+   * @param background The background (with the dimensions given to `reset`), or `null` to forget the previous one.
+   */
+  public void setBackground(FrameBuffer background) {
+    if (halfBlocks) {
+      return; // the lines of the cache are made of whole cells
+    }
+    this.background = background == null ? null : new BackgroundCache(background, colorIndex -> getColorSequence((short)colorIndex), CELL);
+  }
+
+  /**
+   * Follows the background after the camera moved, without encoding it again entirely.
+   * @param background The background given to `setBackground`, already shifted to the left.
+   * @param shift The number of cells it was shifted by.
+   */
+  public void scrollBackground(FrameBuffer background, int shift) {
+    if (this.background != null) {
+      this.background.scroll(background, shift);
+    }
+  }
+
+  /**
+   * Adds the cells that changed since the previous frame to the output of `Terminal`,
+   * so that they're sent in a single write when it's flushed (by the caller).
+   * The pallet is already encoded, so nothing is allocated nor encoded while doing so.
+   *
+   * Within a line, the color is only sent when it differs from the one of the previous cell that was written
+   * (the console keeps using the same color after moving the cursor),
+   * and the colors are reset once at the end of the line.
+   * Lines of a map are mostly long runs of the same color, so it's much smaller
+   * than sending the color and the reset for every single cell.
+   * @param frame The frame to display, it must have the dimensions given to `reset`.
+   * @return The number of bytes that were written to the console.
+   */
+  public int render(FrameBuffer frame) {
+    frameBytes = 0;
+    frameUncoalescedBytes = 0;
+    if (halfBlocks) {
+      renderHalfBlocks(frame.getCells(), 0, 0, width, height);
+    } else {
+      renderRegion(frame.getCells(), 0, 0, width, height);
+    }
+    return endFrame();
+  }
+
+  /**
+   * Same as `render(frame)`, but only the cells within the given rectangles are compared with the previous frame.
+   * The cells outside of them must not have changed since the previous frame.
+   * @param frame The frame to display, it must have the dimensions given to `reset`.
+   * @param regions The rectangles that may have changed, merged so that they don't overlap.
+   * @return The number of bytes that were written to the console.
+   */
+  public int render(FrameBuffer frame, DirtyRegions regions) {
+    frameBytes = 0;
+    frameUncoalescedBytes = 0;
+    for (int r = 0; r < regions.size(); r++) {
+      if (halfBlocks) {
+        renderHalfBlocks(frame.getCells(), regions.getX(r), regions.getY(r), regions.getX(r) + regions.getWidth(r), regions.getY(r) + regions.getHeight(r));
+      } else {
+        renderRegion(frame.getCells(), regions.getX(r), regions.getY(r), regions.getX(r) + regions.getWidth(r), regions.getY(r) + regions.getHeight(r));
+      }
+    }
+    return endFrame();
+  }
+
+  /**
+   * Writes the cells that changed within a rectangle.
+   * @param cells The cells of the frame.
+   * @param fromX The X-coordinate of the first column of the rectangle.
+   * @param fromY The Y-coordinate of the first line of the rectangle.
+   * @param toX The X-coordinate of the column after the rectangle.
+   * @param toY The Y-coordinate of the line after the rectangle.
+   */
+  private void renderRegion(short[] cells, int fromX, int fromY, int toX, int toY) {
+    short[] backgroundCells = background != null && background.getWidth() == width && background.getHeight() == height ? background.getCells() : null;
+    int bytes = 0;
+    int uncoalescedBytes = 0; // what it would have cost to send the color and the reset for each cell
+    for (int y = fromY; y < toY; y++) {
+      int currentColor = NO_COLOR; // the color currently used by the console on this line
+      int cursor = -1; // the X-coordinate of the cell under the console's cursor, if known
+      for (int x = fromX, i = y * width + fromX; x < toX; x++, i++) {
+        short colorIndex = cells[i];
+        if (colorIndex == previous[i]) {
+          continue;
+        }
+        if (cursor != x) {
+          int length = Terminal.moveCursorTo(screenX + x, screenY + y);
+          bytes += length;
+          uncoalescedBytes += length;
+        }
+        if (backgroundCells != null && colorIndex == backgroundCells[i]) {
+          // the changed cells that show the background are copied from its encoded line
+          int end = x + 1;
+          while (end < toX && cells[i + end - x] != previous[i + end - x] && cells[i + end - x] == backgroundCells[i + end - x]) {
+            end++;
+          }
+          if (colorIndex != currentColor) {
+            byte[] ansi = getColorSequence(colorIndex);
+            Terminal.write(ansi);
+            bytes += ansi.length;
+          }
+          int from = background.getCellOffset(x, y);
+          int length = background.getEndOffset(end - 1, y) - from;
+          Terminal.write(background.getLine(y), from, length);
+          bytes += length;
+          for (; x < end; x++, i++) {
+            uncoalescedBytes += getColorSequence(cells[i]).length + 1 + ANSI_RESET.length;
+            previous[i] = cells[i];
+          }
+          currentColor = cells[i - 1];
+          cursor = end;
+          x--; // the loop moves to the next cell
+          i--;
+          continue;
+        }
+        byte[] ansi = getColorSequence(colorIndex);
+        if (colorIndex != currentColor) {
+          Terminal.write(ansi);
+          bytes += ansi.length;
+          currentColor = colorIndex;
+        }
+        Terminal.write(CELL);
+        bytes++;
+        uncoalescedBytes += ansi.length + 1 + ANSI_RESET.length;
+        previous[i] = colorIndex;
+        cursor = x + 1;
+      }
+      if (currentColor != NO_COLOR) {
+        Terminal.write(ANSI_RESET);
+        bytes += ANSI_RESET.length;
+      }
+    }
+    frameBytes += bytes;
+    frameUncoalescedBytes += uncoalescedBytes;
+  }
+
+  /**
+   * Writes the characters that changed within a rectangle, each of them showing two lines of the frame.
+   * The rectangle is extended to whole characters (an even line, and the one after it).
+   *
+   * The frame already has the background under the sprites, so a half is only transparent where the console shows through.
+   * In that case, the other half is drawn with `▀` or `▄` over the background of the console.
+   * A character whose halves have the same color is a colored space, which doesn't need the color of the character.
+   * When the console already has the color of one of the halves, the block is turned upside down to keep it.
+   * @param cells The cells of the frame.
+   * @param fromX The X-coordinate of the first column of the rectangle.
+   * @param fromY The Y-coordinate of the first line of the rectangle.
+   * @param toX The X-coordinate of the column after the rectangle.
+   * @param toY The Y-coordinate of the line after the rectangle.
+   */
+  private void renderHalfBlocks(short[] cells, int fromX, int fromY, int toX, int toY) {
+    int bytes = 0;
+    int uncoalescedBytes = 0;
+    for (int y = fromY - fromY % 2; y < toY; y += 2) {
+      boolean hasLowerLine = y + 1 < height; // the last character of an odd frame only has its upper half
+      int currentColor = NO_COLOR;
+      int currentForeground = NO_COLOR;
+      int cursor = -1;
+      for (int x = fromX, i = y * width + fromX; x < toX; x++, i++) {
+        short upper = cells[i];
+        short lower = hasLowerLine ? cells[i + width] : FrameBuffer.TRANSPARENT;
+        if (upper == previous[i] && (!hasLowerLine || lower == previous[i + width])) {
+          continue;
+        }
+        if (cursor != x) {
+          int length = Terminal.moveCursorTo(screenX + x, screenY + y / 2);
+          bytes += length;
+          uncoalescedBytes += length;
+        }
+        byte[] character;
+        short foreground;
+        short color;
+        if (upper == lower) {
+          character = null;
+          foreground = FrameBuffer.TRANSPARENT;
+          color = upper;
+        } else if (upper == FrameBuffer.TRANSPARENT) {
+          character = LOWER_HALF_BLOCK;
+          foreground = lower;
+          color = FrameBuffer.TRANSPARENT;
+        } else if (lower != FrameBuffer.TRANSPARENT && (lower == currentForeground || upper == currentColor)) {
+          // the same character upside down, to reuse the colors the console already has
+          character = LOWER_HALF_BLOCK;
+          foreground = lower;
+          color = upper;
+        } else {
+          character = UPPER_HALF_BLOCK;
+          foreground = upper;
+          color = lower;
+        }
+        byte[] ansi = getColorSequence(color);
+        if (color != currentColor) {
+          Terminal.write(ansi);
+          bytes += ansi.length;
+          currentColor = color;
+        }
+        if (character == null) {
+          Terminal.write(CELL);
+          bytes++;
+          uncoalescedBytes += ansi.length + 1 + ANSI_RESET.length;
+        } else {
+          byte[] foregroundAnsi = foregroundSequences[foreground];
+          if (foreground != currentForeground) {
+            Terminal.write(foregroundAnsi);
+            bytes += foregroundAnsi.length;
+            currentForeground = foreground;
+          }
+          Terminal.write(character);
+          bytes += character.length;
+          uncoalescedBytes += foregroundAnsi.length + ansi.length + character.length + ANSI_RESET.length;
+        }
+        previous[i] = upper;
+        if (hasLowerLine) {
+          previous[i + width] = lower;
+        }
+        cursor = x + 1;
+      }
+      if (currentColor != NO_COLOR) {
+        Terminal.write(ANSI_RESET);
+        bytes += ANSI_RESET.length;
+      }
+    }
+    frameBytes += bytes;
+    frameUncoalescedBytes += uncoalescedBytes;
+  }
+
+  /**
+   * Gets the number of lines of the console taken by the frames.
+   * @return The height given to `reset`, or half of it with half blocks.
+   */
+  public int getScreenHeight() {
+    return halfBlocks ? (height + 1) / 2 : height;
+  }
+
+  private int endFrame() {
+    lastFrameBytes = frameBytes;
+    lastFrameSavedBytes = frameUncoalescedBytes - lastFrameBytes;
+    frames++;
+    totalBytes += lastFrameBytes;
+    totalSavedBytes += lastFrameSavedBytes;
+    return lastFrameBytes;
+  }
+
+  /**
+   * Gets the ANSI sequence that gives a color to the background of the next cells.
+   * @param colorIndex The index of the color in the pallet, or `FrameBuffer.TRANSPARENT`.
+   * @return The ANSI sequence of the color, already encoded.
+   */
+  private byte[] getColorSequence(short colorIndex) {
+    if (colorIndex == FrameBuffer.TRANSPARENT) {
+      // The exact color of the console is unknown, but ANSI allows us to use a special character for this.
+      return ANSI_BG_DEFAULT_COLOR;
+    }
+    return colorSequences[colorIndex];
+  }
+
+  public long getFrames() { return this.frames; }
+  public long getTotalBytes() { return this.totalBytes; }
+  public int getLastFrameBytes() { return this.lastFrameBytes; }
+  public long getTotalSavedBytes() { return this.totalSavedBytes; }
+  public int getLastFrameSavedBytes() { return this.lastFrameSavedBytes; }
+}
@@ -0,0 +1,208 @@
+package main.java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Everything needed to play a level again exactly as it was played: the map, the mode, the seed and the jumps.
+ *
+ * The game records each level it plays (see `Game`), and the file can be played again later,
+ * either in the game (`--replay=<path>`), or without a console, as fast as possible, with `main()`.
+ * Since the world only depends on its ticks, the replay ends with the same outcome, at the same tick.
+ *
+ * The file is small: after a header (the magic number `MAGIC`, the version, the map, the mode and the seed),
+ * each jump is the number of ticks since the previous one, written with as few bytes as needed (7 bits per byte).
+ * It ends with the outcome and the last tick, to check the replay.
+ */
+public class Replay {
+  public static final String DIRECTORY = "replays";
+  public static final String EXTENSION = ".replay";
+
+  private static final int MAGIC = 0x44445250; // "DDRP"
+  private static final int VERSION = 1;
+
+  private final String mapName;
+  private final boolean endless;
+  private final long seed;
+
+  /**
+   * The ticks at which the player jumped, in ascending order.
+   */
+  private long[] jumpTicks = new long[64];
+  private int jumpCount = 0;
+
+  private World.Outcome outcome = World.Outcome.PLAYING;
+  private long endTick = 0;
+
+  /**
+   * @param mapName The name of the map.
+   * @param endless Is it the endless mode (instead of the arcade mode)?
+   * @param seed The seed of the obstacles of the endless mode (unused in the arcade mode).
+   */
+  public Replay(String mapName, boolean endless, long seed) {
+    this.mapName = mapName;
+    this.endless = endless;
+    this.seed = seed;
+  }
+
+  /**
+   * Creates the level of this replay.
+   * @param assets The resources of the game.
+   * @param map The map of the level, already loaded.
+   * @return The world, before its first tick.
+   */
+  public World createWorld(Assets assets, Map map) {
+    Raster skin = assets.getSkins().get(Game.PLAYER_DEFAULT_SKIN);
+    MapSpawnConfig config = assets.getConfigs().get(mapName);
+    if (endless) {
+      return new World(map, new EndlessSpawner(config, assets.getObstacles().keySet(), seed), assets.getObstacles(), skin, Game.PIXEL_SIZE);
+    }
+    return new World(map, config, assets.getObstacles(), skin, Game.PIXEL_SIZE);
+  }
+
+  /**
+   * Records a jump. It's only an addition to an array, so it can be called on each key.
+   * @param tick The tick of the world when the jump was made (before the next tick).
+   */
+  public void recordJump(long tick) {
+    if (jumpCount == jumpTicks.length) {
+      jumpTicks = Arrays.copyOf(jumpTicks, jumpCount * 2);
+    }
+    jumpTicks[jumpCount++] = tick;
+  }
+
+  /**
+   * Records how the level ended.
+   * @param outcome The outcome (`PLAYING` if the user left the level).
+   * @param tick The last tick of the world.
+   */
+  public void finish(World.Outcome outcome, long tick) {
+    this.outcome = outcome;
+    this.endTick = tick;
+  }
+
+  /**
+   * Writes the replay in a file.
+   * @param path The path of the file.
+   */
+  public void write(String path) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeUTF(mapName);
+      out.writeBoolean(endless);
+      out.writeLong(seed);
+      writeVarLong(out, jumpCount);
+      long previous = 0;
+      for (int i = 0; i < jumpCount; i++) {
+        writeVarLong(out, jumpTicks[i] - previous);
+        previous = jumpTicks[i];
+      }
+      out.writeByte(outcome.ordinal());
+      writeVarLong(out, endTick);
+    }
+  }
+
+  /**
+   * Writes the replay in `DIRECTORY`, in a new file named after the map and the current time.
+   * @return The path of the file.
+   */
+  public String save() throws IOException {
+    new File(DIRECTORY).mkdirs();
+    String path = DIRECTORY + "/" + mapName + "-" + System.currentTimeMillis() + EXTENSION;
+    write(path);
+    return path;
+  }
+
+  /**
+   * Reads a replay.
+   * @param path The path of the file.
+   * @return The replay.
+   * @throws IOException If the file can't be read or isn't a replay.
+   */
+  public static Replay read(String path) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+      if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+        throw new IOException(path + " isn't a replay of this version of the game");
+      }
+      Replay replay = new Replay(in.readUTF(), in.readBoolean(), in.readLong());
+      long count = readVarLong(in);
+      long tick = 0;
+      for (long i = 0; i < count; i++) {
+        tick += readVarLong(in);
+        replay.recordJump(tick);
+      }
+      int outcome = in.readUnsignedByte();
+      if (outcome >= World.Outcome.values().length) {
+        throw new IOException(path + ": unknown outcome " + outcome);
+      }
+      replay.finish(World.Outcome.values()[outcome], readVarLong(in));
+      return replay;
+    }
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int)(value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int)value);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long)(b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("malformed number");
+  }
+
+  /**
+   * Plays a replay without a console and checks that it ends like the recorded level.
+   * Usage: `java -cp bin main.java.Replay <replay> [--real-time]`
+   * @param args The path of the replay, then `--real-time` to play it at the speed of the game instead of as fast as possible.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java -cp bin main.java.Replay <replay> [--real-time]");
+      return;
+    }
+    Replay replay = read(args[0]);
+    boolean realTime = args.length > 1 && args[1].equals("--real-time");
+    Assets assets = Assets.load(new StartupReport());
+    World world = replay.createWorld(assets, assets.getMaps().get(replay.getMapName()));
+    Simulation simulation = new Simulation(world, replay.getJumpTicks());
+
+    long start = System.nanoTime();
+    // a level that was left before its end is played until the same tick
+    long maxTicks = replay.getOutcome() == World.Outcome.PLAYING ? replay.getEndTick() : Simulation.DEFAULT_MAX_TICKS;
+    World.Outcome outcome = simulation.run(maxTicks, realTime);
+    long duration = Math.max(1, System.nanoTime() - start);
+
+    System.out.println("Map: " + replay.getMapName() + (replay.isEndless() ? " (endless, seed " + replay.getSeed() + ")" : " (arcade)") + ", " + replay.getJumpTicks().length + " jump(s).");
+    System.out.println("Recorded: " + replay.getOutcome() + " at tick " + replay.getEndTick() + ".");
+    System.out.println("Replayed: " + outcome + " at tick " + world.getTick() + String.format(" (in %.2f ms).", duration / 1e6));
+    if (outcome != replay.getOutcome() || world.getTick() != replay.getEndTick()) {
+      System.out.println("The replay doesn't match the recorded level.");
+      System.exit(1);
+    }
+  }
+
+  public String getMapName() { return this.mapName; }
+  public boolean isEndless() { return this.endless; }
+  public long getSeed() { return this.seed; }
+  public long[] getJumpTicks() { return Arrays.copyOf(this.jumpTicks, this.jumpCount); }
+  public World.Outcome getOutcome() { return this.outcome; }
+  public long getEndTick() { return this.endTick; }
+}
@@ -0,0 +1,169 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * What the game knows about the console it's displayed in, and the sequences that control the whole screen.
+ *
+ * The game is displayed in the alternate screen of the console (like `less` or `vim`),
+ * so the history of the console is given back untouched when the game is terminated, and the cursor is hidden.
+ * The screen is cleared with a single sequence, instead of being covered with spaces.
+ *
+ * When the console supports them, the frames are written between the two markers of a synchronized update:
+ * the console waits for the end of the frame before displaying it, so a large redraw never appears half done.
+ * The support is asked to the console when the game starts, and its answer arrives with the keys (see `KeyDecoder`).
+ * Until then, or if the console never answers, the markers aren't written.
+ *
+ * The size of the console is read with `stty`, and read again each time the console is resized
+ * (the `SIGWINCH` signal), if the system allows the game to know about it.
+ */
+public final class Screen {
+  private static final byte[] ENTER = "\u001b[?1049h\u001b[?25l".getBytes(StandardCharsets.US_ASCII); // alternate screen, hidden cursor
+  private static final byte[] LEAVE = "\u001b[?25h\u001b[?1049l".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] CLEAR = "\u001b[2J\u001b[H".getBytes(StandardCharsets.US_ASCII); // erase everything, then the cursor goes to the top-left corner
+  private static final byte[] ASK_SYNCHRONIZED_UPDATES = "\u001b[?2026$p".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] BEGIN_UPDATE = "\u001b[?2026h".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] END_UPDATE = "\u001b[?2026l".getBytes(StandardCharsets.US_ASCII);
+
+  private static volatile boolean synchronizedUpdates = false;
+
+  /**
+   * The size of the console, in characters, or 0 if it's unknown (when the output isn't a console for example).
+   */
+  private static volatile int width = 0;
+  private static volatile int height = 0;
+
+  /**
+   * The number of times the console was resized, so that a thread can tell if it changed since it last looked.
+   */
+  private static final AtomicInteger resizes = new AtomicInteger();
+
+  private Screen() {}
+
+  /**
+   * Switches to the alternate screen and hides the cursor.
+   * The size is read, and then tracked.
+   */
+  public static void enter() {
+    Terminal.write(ENTER);
+    Terminal.write(CLEAR);
+    readSize();
+    trackResizes();
+  }
+
+  /**
+   * Reads the size again each time the console sends `SIGWINCH` to the game.
+   * The signals are only available through `sun.misc.Signal`, which is used by reflection
+   * so that compiling the game doesn't warn about it. Without it, the size is only read once.
+   */
+  private static void trackResizes() {
+    try {
+      Class<?> signalClass = Class.forName("sun.misc.Signal");
+      Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+      Object handler = Proxy.newProxyInstance(handlerClass.getClassLoader(), new Class<?>[]{ handlerClass }, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "handle":
+            readSize();
+            resizes.incrementAndGet();
+            return null;
+          case "equals":
+            return proxy == args[0];
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          default:
+            return "resize handler";
+        }
+      });
+      Object signal = signalClass.getConstructor(String.class).newInstance("WINCH");
+      signalClass.getMethod("handle", signalClass, handlerClass).invoke(null, signal, handler);
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      // no such signal on this system (or no such class in this JVM)
+    }
+  }
+
+  /**
+   * Asks the console if it supports the synchronized updates.
+   * It must be done once the console is in raw mode (see `Controls.enableRawMode()`), so that the answer isn't displayed,
+   * and before the keys are listened to, so that the listener only has to decode the answer with the keys.
+   */
+  public static void askSynchronizedUpdates() {
+    Terminal.write(ASK_SYNCHRONIZED_UPDATES);
+  }
+
+  /**
+   * Shows the cursor and goes back to the normal screen of the console, as it was before the game.
+   */
+  public static void leave() {
+    if (synchronizedUpdates) {
+      Terminal.write(END_UPDATE);
+    }
+    Terminal.write(LEAVE);
+  }
+
+  /**
+   * Erases the whole screen, and moves the cursor to the top-left corner.
+   */
+  public static void clear() {
+    Terminal.write(CLEAR);
+  }
+
+  /**
+   * Starts a frame: the console won't display anything until `endUpdate()`.
+   */
+  public static void beginUpdate() {
+    if (synchronizedUpdates) {
+      Terminal.write(BEGIN_UPDATE);
+    }
+  }
+
+  /**
+   * Ends a frame: the console displays everything written since `beginUpdate()` at once.
+   */
+  public static void endUpdate() {
+    if (synchronizedUpdates) {
+      Terminal.write(END_UPDATE);
+    }
+  }
+
+  /**
+   * Called when the console answers that it supports the synchronized updates.
+   */
+  public static void enableSynchronizedUpdates() {
+    synchronizedUpdates = true;
+  }
+
+  /**
+   * Reads the size of the console with `stty` (which answers "lines columns").
+   */
+  private static void readSize() {
+    try {
+      String[] commands = new String[] { "/bin/sh", "-c", "stty size </dev/tty" };
+      Process process = Runtime.getRuntime().exec(commands);
+      String output;
+      try (InputStream in = process.getInputStream()) {
+        output = new String(in.readAllBytes(), StandardCharsets.US_ASCII).trim();
+      }
+      if (process.waitFor() != 0) {
+        return;
+      }
+      String[] size = output.split(" ");
+      if (size.length == 2) {
+        height = Integer.parseInt(size[0]);
+        width = Integer.parseInt(size[1]);
+      }
+    } catch (IOException | NumberFormatException e) {
+      // not a console: the size stays unknown
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public static boolean hasSynchronizedUpdates() { return synchronizedUpdates; }
+  public static int getWidth() { return width; }
+  public static int getHeight() { return height; }
+  public static int getResizes() { return resizes.get(); }
+}
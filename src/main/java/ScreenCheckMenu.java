@@ -13,20 +13,26 @@ public class ScreenCheckMenu extends GameMenu {
 
   /**
    * Executes a little program to see if the user has a big enough console to play with.
-   * It displays numbers both horizontally and vertically
-   * depending on `min_height` and `min_width`.
+   * It displays a ruler of `min_width` pixels horizontally (`pixel_size` characters each),
+   * and the numbers of the lines vertically, up to `min_height`.
    * If the user doesn't see all of the numbers, then the screen isn't big enough.
    */
   @Override
   protected void display() {
     Controls.println("L'écran est à la bonne taille si vous pouvez voir les nombres " + min_height + " en hauteur et " + min_width + " en largeur.");
-    for(int i = 0; i < min_height; i++) {
-		  System.out.print(".".repeat(pixel_size));
-	  }
-    System.out.print(min_height);
-	  Controls.println("");
-	  for(int h = 1; h < min_width + 1; h++) {
-		  Controls.println(String.format("%0" + pixel_size + "d", h) + " ");
-	  }
+    for(int i = 0; i < min_width; i++) {
+      Terminal.print(".".repeat(pixel_size));
+    }
+    Terminal.print(String.valueOf(min_width));
+    Controls.println("");
+    // each number is the line of the console it's on: the first two are the sentence and the ruler
+    for(int h = 3; h < min_height + 1; h++) {
+      Controls.println(String.valueOf(h));
+    }
+    // the size of the console is known when it's a real console (see `Screen`)
+    if (Screen.getWidth() > 0) {
+      boolean bigEnough = Screen.getHeight() >= min_height && Screen.getWidth() >= min_width * pixel_size;
+      Controls.println("Ta console fait " + Screen.getWidth() + " colonnes et " + Screen.getHeight() + " lignes : " + (bigEnough ? "c'est assez grand." : "c'est trop petit."));
+    }
   }
 }
@@ -0,0 +1,108 @@
+package main.java;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a level without any console, as fast as the CPU allows.
+ *
+ * The clock is virtual: it's the number of ticks of the `World`,
+ * so a run only depends on the map, its spawn config and the inputs.
+ * Given the same ones, two runs always give the same result, on any machine.
+ * The inputs are the ticks at which the player jumps, the same way the game handles a key
+ * between two ticks.
+ *
+ * A checksum of the state of the world after each tick is computed,
+ * so that two runs can be compared without comparing every frame.
+ * A run can also be paced like the game (one tick every `World.TICK_DURATION` ms), to watch a replay for example.
+ */
+public class Simulation {
+  /**
+   * The maximum duration of a run, in ticks (1 hour of game).
+   */
+  public static final long DEFAULT_MAX_TICKS = 3_600_000L / World.TICK_DURATION;
+
+  private final World world;
+  private final long[] jumpTicks;
+  private long checksum = 1;
+
+  /**
+   * @param world The level to play.
+   * @param jumpTicks The ticks at which the player jumps, in ascending order.
+   *                  A jump at the tick `n` happens before the tick `n + 1` is made.
+   */
+  public Simulation(World world, long[] jumpTicks) {
+    this.world = world;
+    this.jumpTicks = jumpTicks;
+  }
+
+  /**
+   * Plays the level until it ends.
+   * @param maxTicks The maximum number of ticks, in case the level never ends.
+   * @return The outcome of the level (`PLAYING` if it didn't end before `maxTicks`).
+   */
+  public World.Outcome run(long maxTicks) {
+    return run(maxTicks, false);
+  }
+
+  /**
+   * Plays the level until it ends.
+   * @param maxTicks The maximum number of ticks, in case the level never ends.
+   * @param realTime Should the ticks happen at the pace of the game, instead of as fast as possible?
+   * @return The outcome of the level (`PLAYING` if it didn't end before `maxTicks`).
+   */
+  public World.Outcome run(long maxTicks, boolean realTime) {
+    long tickDuration = TimeUnit.MILLISECONDS.toNanos(World.TICK_DURATION);
+    long nextTickTime = System.nanoTime();
+    int nextJump = 0;
+    while (world.getOutcome() == World.Outcome.PLAYING && world.getTick() < maxTicks) {
+      if (realTime) {
+        LockSupport.parkNanos(nextTickTime - System.nanoTime());
+        nextTickTime += tickDuration;
+      }
+      while (nextJump < jumpTicks.length && jumpTicks[nextJump] <= world.getTick()) {
+        world.jump();
+        nextJump++;
+      }
+      world.tick();
+      checksum = checksum * 31 + world.getPlayerY();
+      for (MovingObstacle obstacle : world.getObstacles()) {
+        checksum = (checksum * 31 + obstacle.getX()) * 31 + obstacle.getY();
+      }
+    }
+    return world.getOutcome();
+  }
+
+  public World getWorld() { return this.world; }
+  public long getChecksum() { return this.checksum; }
+
+  /**
+   * Plays a map without a console and displays the result.
+   * Usage: `java -cp bin main.java.Simulation <map> [time of each jump in milliseconds...]`
+   * @param args The name of the map, then the times at which the player jumps.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java -cp bin main.java.Simulation <map> [time of each jump in milliseconds...]");
+      return;
+    }
+    String mapName = args[0];
+    long[] jumpTicks = new long[args.length - 1];
+    for (int i = 1; i < args.length; i++) {
+      jumpTicks[i - 1] = Long.parseLong(args[i]) / World.TICK_DURATION;
+    }
+    Assets assets = Assets.load(new StartupReport());
+    Map map = assets.getMaps().get(mapName);
+    World world = new World(map, assets.getConfigs().get(mapName), assets.getObstacles(), assets.getSkins().get(Game.PLAYER_DEFAULT_SKIN), Game.PIXEL_SIZE);
+    Simulation simulation = new Simulation(world, jumpTicks);
+
+    long start = System.nanoTime();
+    World.Outcome outcome = simulation.run(DEFAULT_MAX_TICKS);
+    long duration = Math.max(1, System.nanoTime() - start);
+
+    System.out.println("Outcome: " + outcome + " after " + world.getTime() + " ms of game (" + world.getTick() + " ticks).");
+    System.out.println(String.format("Simulated in %.2f ms (%.0f ticks per second).", duration / 1e6, world.getTick() * 1e9 / duration));
+    System.out.println("Checksum: " + Long.toHexString(simulation.getChecksum()));
+  }
+}
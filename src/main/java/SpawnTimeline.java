@@ -0,0 +1,63 @@
+package main.java;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * The obstacles of a level that spawn at a given time (the fourth column of the config of the map).
+ *
+ * They're kept in a priority queue, ordered by time, and released when the clock of the game reaches their time.
+ * So the config doesn't have to be sorted, several obstacles can be on the map at the same time,
+ * and a level can have thousands of them: only the next one is looked at on each tick.
+ * Two obstacles with the same time are released in the order of the config.
+ */
+public class SpawnTimeline {
+  private final PriorityQueue<Event> events = new PriorityQueue<>();
+
+  /**
+   * A spawn and its position in the config, to break the ties.
+   */
+  private static final class Event implements Comparable<Event> {
+    final ObstacleSpawn spawn;
+    final int index;
+
+    Event(ObstacleSpawn spawn, int index) {
+      this.spawn = spawn;
+      this.index = index;
+    }
+
+    @Override
+    public int compareTo(Event other) {
+      int byTime = Integer.compare(spawn.getTime(), other.spawn.getTime());
+      return byTime != 0 ? byTime : Integer.compare(index, other.index);
+    }
+  }
+
+  /**
+   * Schedules the timed spawns of a config. The others are ignored.
+   * @param spawns The spawns of the config.
+   */
+  public SpawnTimeline(ArrayList<ObstacleSpawn> spawns) {
+    for (int i = 0; i < spawns.size(); i++) {
+      if (spawns.get(i).isTimed()) {
+        events.add(new Event(spawns.get(i), i));
+      }
+    }
+  }
+
+  /**
+   * Takes the next spawn whose time has come.
+   * @param time The current time of the game, in milliseconds.
+   * @return The spawn, or `null` if the next one is later (or if there aren't any left).
+   */
+  public ObstacleSpawn pollDue(long time) {
+    Event next = events.peek();
+    if (next == null || next.spawn.getTime() > time) {
+      return null;
+    }
+    return events.poll().spawn;
+  }
+
+  public boolean isEmpty() { return this.events.isEmpty(); }
+  public int size() { return this.events.size(); }
+}
@@ -0,0 +1,79 @@
+package main.java;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * The duration of each phase of the startup of the game,
+ * and the files that couldn't be loaded.
+ *
+ * Files are loaded in parallel, so it can be filled by several threads at once.
+ */
+public class StartupReport {
+  /**
+   * The time, according to `System.nanoTime()`, at which the startup began.
+   */
+  private final long startTime = System.nanoTime();
+
+  /**
+   * For each phase, in the order in which they started:
+   * the number of files, the total time spent on them and the time at which the last one was done.
+   */
+  private final LinkedHashMap<String, long[]> phases = new LinkedHashMap<>();
+
+  private final ArrayList<String> failures = new ArrayList<>();
+
+  /**
+   * Records the time spent on a file (or on a step that isn't about a file).
+   * @param phase The name of the phase.
+   * @param duration The time spent, in nanoseconds.
+   */
+  public synchronized void addTime(String phase, long duration) {
+    long[] stats = phases.computeIfAbsent(phase, name -> new long[3]);
+    stats[0]++;
+    stats[1] += duration;
+    stats[2] = Math.max(stats[2], System.nanoTime() - startTime);
+  }
+
+  /**
+   * Records a file that couldn't be loaded.
+   * @param path The path to the file.
+   * @param error What went wrong.
+   */
+  public synchronized void addFailure(String path, Throwable error) {
+    failures.add(path + ": " + error);
+  }
+
+  /**
+   * Gets the lines of the report.
+   * @return One line per phase, then one line per failure.
+   */
+  public synchronized ArrayList<String> getLines() {
+    ArrayList<String> lines = new ArrayList<>();
+    for (String phase : phases.keySet()) {
+      long[] stats = phases.get(phase);
+      lines.add(String.format("%-10s %3d task(s) %8.2f ms, done after %8.2f ms", phase, stats[0], stats[1] / 1e6, stats[2] / 1e6));
+    }
+    for (String failure : failures) {
+      lines.add("Failed to load " + failure);
+    }
+    return lines;
+  }
+
+  /**
+   * Writes the report into a file, one line at a time.
+   * @param path The path to the file.
+   */
+  public void writeTo(String path) throws IOException {
+    try (FileWriter writer = new FileWriter(path)) {
+      for (String line : getLines()) {
+        writer.write(line + System.lineSeparator());
+      }
+    }
+  }
+
+  public synchronized boolean hasFailures() { return !this.failures.isEmpty(); }
+  public synchronized int getFailureCount() { return this.failures.size(); }
+}
@@ -0,0 +1,291 @@
+package main.java;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * All the output of the game goes through this class.
+ *
+ * The bytes are accumulated in a buffer, and written to the standard output all at once when `flush()` is called.
+ * It doesn't go through `System.out` because it's synchronized and encodes each string it receives,
+ * whereas the colors and the cells are already encoded.
+ *
+ * The writing itself is done by a single thread, the writer, so that a slow console never stops the game.
+ * The buffers come from a small ring (`RING_SIZE` buffers, allocated once):
+ * one is being filled, the others are waiting to be written, being written, or free.
+ * `submit()` hands the filled buffer to the writer and takes a free one, without waiting for the console,
+ * unless the writer is behind on all the other buffers.
+ * A producer that mustn't wait (the render thread) asks `canSubmit()` first,
+ * and doesn't draw the frame if the console is behind: the next frame will be more recent anyway.
+ * A buffer that fills up in the middle of a frame is only submitted if the writer can spare a free buffer
+ * and still have one for the end of the frame: otherwise, it's replaced by a larger one,
+ * so the frame doesn't wait for the console either.
+ */
+public final class Terminal {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * The number of buffers: the one being filled, one being written and one waiting for the writer.
+   */
+  private static final int RING_SIZE = 3;
+
+  /**
+   * The buffer being filled.
+   */
+  private static ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  private static volatile WritableByteChannel channel = new FileOutputStream(FileDescriptor.out).getChannel();
+
+  /**
+   * Guards `pending` and `free`, and is notified each time the writer frees a buffer.
+   */
+  private static final Object ring = new Object();
+
+  /**
+   * The filled buffers, in the order they must be written. The first one is being written.
+   */
+  private static final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+  private static final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+  private static Thread writer = null;
+
+  /**
+   * Called by the writer each time a buffer is free again.
+   */
+  private static volatile Runnable bufferListener = null;
+
+  static {
+    for (int i = 1; i < RING_SIZE; i++) {
+      free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+    }
+  }
+
+  /**
+   * Used to write the digits of a number, from the last one to the first one.
+   */
+  private static final byte[] digits = new byte[11];
+
+  /**
+   * Sends the output somewhere else than the standard output (a file, or nowhere for the benchmarks).
+   * What was added before is written to the previous output first.
+   * @param output The new output.
+   */
+  public static synchronized void setOutput(WritableByteChannel output) {
+    flush();
+    channel = output;
+  }
+
+  /**
+   * Sets what to do each time the writer is done with a buffer,
+   * for example waking up a thread that didn't submit its frame because the console was behind.
+   * It's called by the writer thread, so it must be quick.
+   * @param listener The action, or `null`.
+   */
+  public static void setBufferListener(Runnable listener) {
+    bufferListener = listener;
+  }
+
+  /**
+   * Adds bytes to the output.
+   * If the buffer is full, room is made first (see `makeRoom()`).
+   * @param bytes The bytes to write.
+   * @param offset The index of the first byte to write.
+   * @param length The number of bytes to write.
+   */
+  public static synchronized void write(byte[] bytes, int offset, int length) {
+    while (length > 0) {
+      if (!buffer.hasRemaining()) {
+        makeRoom();
+      }
+      int n = Math.min(length, buffer.remaining());
+      buffer.put(bytes, offset, n);
+      offset += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Adds bytes to the output.
+   * @param bytes The bytes to write.
+   */
+  public static synchronized void write(byte[] bytes) {
+    write(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Adds a single byte (an ASCII character) to the output.
+   * @param b The byte to write.
+   */
+  public static synchronized void write(byte b) {
+    if (!buffer.hasRemaining()) {
+      makeRoom();
+    }
+    buffer.put(b);
+  }
+
+  /**
+   * Makes room in the buffer being filled, when it's full.
+   * It's submitted if the writer has a free buffer to give in exchange, and another one left
+   * for the `submit()` that ends the frame (the one the producer checked with `canSubmit()`).
+   * Otherwise, it's copied into a buffer twice as large, which stays in the ring.
+   */
+  private static void makeRoom() {
+    boolean spareBuffer;
+    synchronized (ring) {
+      spareBuffer = free.size() > 1; // only the producers take free buffers, and they're synchronized on this class
+    }
+    if (spareBuffer) {
+      submit();
+      return;
+    }
+    ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+    buffer.flip();
+    larger.put(buffer);
+    buffer = larger;
+  }
+
+  /**
+   * Adds the decimal representation of a positive number to the output, without creating a string.
+   * @param n The number to write.
+   * @return The number of bytes that were written.
+   */
+  public static synchronized int writeInt(int n) {
+    int length = 0;
+    do {
+      digits[length++] = (byte)('0' + n % 10);
+      n /= 10;
+    } while (n > 0);
+    for (int i = length - 1; i >= 0; i--) {
+      write(digits[i]);
+    }
+    return length;
+  }
+
+  /**
+   * Adds some text to the output.
+   * The text is encoded in UTF-8 because the menus contain accents.
+   * @param text The text to write.
+   */
+  public static synchronized void print(String text) {
+    write(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Adds the ANSI sequence that moves the cursor to a specific position on the screen.
+   * @param x The coordinates on the X-axis
+   * @param y The coordinates on the Y-axis
+   * @return The number of bytes that were written.
+   */
+  public static synchronized int moveCursorTo(int x, int y) {
+    write((byte)'\033');
+    write((byte)'[');
+    int length = writeInt(y);
+    write((byte)';');
+    length += writeInt(x);
+    write((byte)'H');
+    return length + 4;
+  }
+
+  /**
+   * Can the buffer being filled be submitted without waiting for the console?
+   * @return `true` if the writer has a free buffer to give in exchange.
+   */
+  public static boolean canSubmit() {
+    synchronized (ring) {
+      return !free.isEmpty();
+    }
+  }
+
+  /**
+   * Hands everything that was added to the output since the last submit to the writer thread.
+   * It only waits if the writer is behind on all the other buffers of the ring (see `canSubmit()`).
+   */
+  public static synchronized void submit() {
+    if (buffer.position() == 0) {
+      return;
+    }
+    buffer.flip();
+    synchronized (ring) {
+      if (writer == null) {
+        writer = new Thread(Terminal::writeLoop, "terminal-writer");
+        writer.setDaemon(true); // `flush()` must be called before terminating, for the last bytes
+        writer.start();
+      }
+      pending.add(buffer);
+      ring.notifyAll();
+      awaitFreeBuffers(1);
+      buffer = free.poll();
+    }
+  }
+
+  /**
+   * Writes everything that was added to the output, and waits until it's actually written.
+   */
+  public static synchronized void flush() {
+    submit();
+    synchronized (ring) {
+      awaitFreeBuffers(RING_SIZE - 1);
+    }
+  }
+
+  /**
+   * Waits until the writer has freed enough buffers.
+   * The caller must own the `ring` monitor.
+   * @param count The number of free buffers to wait for.
+   */
+  private static void awaitFreeBuffers(int count) {
+    boolean interrupted = false;
+    while (free.size() < count) {
+      try {
+        ring.wait();
+      } catch (InterruptedException e) {
+        interrupted = true; // the bytes must be written anyway
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * The loop of the writer thread: it writes the pending buffers one after the other, then frees them.
+   * It runs as long as the game, even if it's interrupted, since `submit()` only starts it once.
+   */
+  private static void writeLoop() {
+    while (true) {
+      ByteBuffer next;
+      synchronized (ring) {
+        while (pending.isEmpty()) {
+          try {
+            ring.wait();
+          } catch (InterruptedException ignore) {
+            // the writer never stops: the buffers submitted later would never be written (it's a daemon anyway)
+          }
+        }
+        next = pending.peek();
+      }
+      try {
+        while (next.hasRemaining()) {
+          channel.write(next);
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      next.clear();
+      synchronized (ring) {
+        pending.poll();
+        free.add(next);
+        ring.notifyAll();
+      }
+      Runnable listener = bufferListener;
+      if (listener != null) {
+        listener.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package main.java;
+
+/**
+ * The part of a map that is displayed: `width` columns from the camera.
+ *
+ * The background of the frames is the content of the viewport, where each pixel takes `pixelSize` cells.
+ * When the camera moves, the cells that stay visible are shifted,
+ * and only the columns that appear are read from the map (through `MapChunks`).
+ * The cells whose color changed are remembered line by line, so that only them are drawn again.
+ * A map that isn't wider than the viewport is simply displayed entirely.
+ */
+public class Viewport {
+  /**
+   * The number of chunks read after the right border of the viewport.
+   */
+  private static final int CHUNKS_AHEAD = 1;
+
+  private final MapChunks chunks;
+  private final FrameBuffer background;
+  private final int width;
+  private final int pixelSize;
+
+  /**
+   * The first column of the map that is displayed, or `-1` before the first call to `scrollTo`.
+   */
+  private int cameraX = -1;
+
+  /**
+   * The number of cells the background was shifted by during the last scroll, or 0 if it was drawn again entirely.
+   */
+  private int shift = 0;
+
+  /**
+   * For each line, the cells from `changedFrom[y]` to `changedTo[y]` (excluded) contain all the cells
+   * that changed during the last shift (`changedFrom[y] == changedTo[y]` if none did).
+   */
+  private final int[] changedFrom;
+  private final int[] changedTo;
+
+  /**
+   * @param map The map.
+   * @param width The number of columns of the map that are displayed.
+   * @param pixelSize The number of cells of a pixel on the X-axis.
+   */
+  public Viewport(Map map, int width, int pixelSize) {
+    this.width = Math.min(width, map.getWidth());
+    this.pixelSize = pixelSize;
+    this.chunks = new MapChunks(map, this.width, CHUNKS_AHEAD);
+    this.background = new FrameBuffer(this.width * pixelSize, map.getHeight());
+    this.changedFrom = new int[map.getHeight()];
+    this.changedTo = new int[map.getHeight()];
+    scrollTo(0);
+  }
+
+  /**
+   * Moves the camera, and updates the background.
+   * @param cameraX The first column of the map to display.
+   * @return `true` if the background changed: entirely if `getShift()` is 0, otherwise only the cells given by `getChangedFrom()` and `getChangedTo()`.
+   */
+  public boolean scrollTo(int cameraX) {
+    if (cameraX == this.cameraX) {
+      return false;
+    }
+    int shift = cameraX - this.cameraX;
+    chunks.moveTo(cameraX);
+    if (this.cameraX == -1 || shift <= 0 || shift >= width) {
+      this.cameraX = cameraX;
+      this.shift = 0;
+      drawColumns(0, width);
+      return true;
+    }
+    // the columns that stay visible move to the left, then the new ones are drawn on the right
+    short[] cells = background.getCells();
+    int rowWidth = background.getWidth();
+    int shiftedCells = shift * pixelSize;
+    int keptCells = (width - shift) * pixelSize;
+    for (int y = 0; y < background.getHeight(); y++) {
+      int row = y * rowWidth;
+      int from = keptCells;
+      int to = keptCells;
+      for (int x = 0; x < keptCells; x++) {
+        if (cells[row + x] != cells[row + x + shiftedCells]) {
+          from = Math.min(from, x);
+          to = x + 1;
+        }
+      }
+      changedFrom[y] = from;
+      changedTo[y] = to;
+      System.arraycopy(cells, row + shiftedCells, cells, row, keptCells);
+    }
+    this.cameraX = cameraX;
+    this.shift = shiftedCells;
+    drawColumns(width - shift, width);
+    return true;
+  }
+
+  /**
+   * Draws some columns of the viewport from the chunks of the map.
+   * @param from The first column of the viewport to draw.
+   * @param to The column after the last one to draw.
+   */
+  private void drawColumns(int from, int to) {
+    for (int column = from; column < to; column++) {
+      int x = cameraX + column;
+      byte[] chunk = chunks.getChunk(x / MapChunks.CHUNK_WIDTH);
+      int offset = x % MapChunks.CHUNK_WIDTH;
+      for (int y = 0; y < background.getHeight(); y++) {
+        int colorIndex = chunk[y * MapChunks.CHUNK_WIDTH + offset];
+        for (int i = 0; i < pixelSize; i++) {
+          int cellX = column * pixelSize + i;
+          if (background.get(cellX, y) != colorIndex) {
+            // a new cell that differs from the one it replaces
+            changedFrom[y] = Math.min(changedFrom[y], cellX);
+            changedTo[y] = Math.max(changedTo[y], cellX + 1);
+          }
+          background.set(cellX, y, colorIndex);
+        }
+      }
+    }
+  }
+
+  public FrameBuffer getBackground() { return this.background; }
+  public int getShift() { return this.shift; }
+  public int getChangedFrom(int y) { return this.changedFrom[y]; }
+  public int getChangedTo(int y) { return this.changedTo[y]; }
+  public MapChunks getChunks() { return this.chunks; }
+  public int getCameraX() { return this.cameraX; }
+  public int getWidth() { return this.width; }
+}
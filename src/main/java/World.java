@@ -0,0 +1,373 @@
+package main.java;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The state of a level being played: the player and the obstacles currently on the map.
+ *
+ * The world only changes when `tick()` is called,
+ * and each tick represents exactly `TICK_DURATION` milliseconds of the game.
+ * As a consequence, the speed of the obstacles and of the jump
+ * doesn't depend on how long it takes to display them.
+ *
+ * The coordinates are those of the map, in characters (a pixel of the map is `pixelSize` characters wide):
+ * x = 0 is the first column of the map, and y = 0 its first line.
+ *
+ * In the arcade mode, the obstacles are those of the config of the map, and the player wins after the last one:
+ * the obstacles with a time spawn at this time (see `SpawnTimeline`), the others one after the other, in order.
+ * In the endless mode, they're chosen by an `EndlessSpawner` until the player loses.
+ * Either way, the obstacles come from a pool, so that a level doesn't allocate anything when an obstacle spawns.
+ *
+ * Only `VIEWPORT_WIDTH` columns of the map are displayed.
+ * On a wider map, the camera moves one column to the right every `SCROLL_DELAY` milliseconds, until the end of the map.
+ * The player stays at the same place in the viewport, so it moves with the camera,
+ * and the obstacles spawn at the right border of the viewport, wherever the camera is.
+ * The coordinates in the viewport are only computed when a frame is drawn (see `Game`).
+ */
+public class World {
+  /**
+   * The duration of a tick, in milliseconds.
+   */
+  public static final int TICK_DURATION = 5;
+
+  /**
+   * The number of pixels the player will jump upwards and downwards.
+   */
+  private static final int JUMP_HEIGHT = 13;
+
+  /**
+   * The delay between each step of the jump.
+   * A delay too low will make the jump look instantaneous or hard to follow.
+   */
+  private static final int JUMP_DELAY_BETWEEN_EACH_FRAME = 40;
+
+  /**
+   * The number of columns of the map that are displayed (the width of the maps of the `assets` folder).
+   */
+  public static final int VIEWPORT_WIDTH = 80;
+
+  /**
+   * The delay, in milliseconds, between two moves of the camera on a map wider than the viewport.
+   */
+  private static final int SCROLL_DELAY = 40;
+
+  /**
+   * The number of pixels on the Y-axis between the top of the map and the floor.
+   * It must be the same on all maps, hence this constant.
+   */
+  private static final int MAP_DISTANCE_UNTIL_FLOOR = 32;
+
+  /**
+   * The number of obstacles created with the world.
+   * Usually, there's only one obstacle on the map at a time.
+   * If there are more (because of the timeline), the pool grows until it has enough of them.
+   */
+  private static final int OBSTACLE_POOL_SIZE = 4;
+
+  /**
+   * How a level can end.
+   */
+  public enum Outcome {
+    PLAYING,
+    LOST,
+    WON
+  }
+
+  private final Map map;
+  /**
+   * The obstacles that spawn once the previous one left the map, and those that spawn at a given time.
+   */
+  private final ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+  private final SpawnTimeline timeline;
+  private final EndlessSpawner endlessSpawner; // `null` in the arcade mode
+  private final HashMap<String, Obstacle> allObstacles;
+  private final Raster playerSkin;
+  private final int pixelSize;
+
+  /**
+   * The opaque pixels of the player, and of each obstacle (computed the first time it spawns).
+   */
+  private final CollisionMask playerMask;
+  private final HashMap<Obstacle, CollisionMask> obstacleMasks = new HashMap<>();
+
+  /**
+   * The number of ticks since the beginning of the level.
+   */
+  private long tick = 0;
+
+  /**
+   * The player's position on the X-axis in the viewport.
+   */
+  private static final int PLAYER_VIEWPORT_X = 2; // ! MUST BE DIVISIBLE BY `PIXEL_SIZE` AND > 0 !
+
+  /**
+   * The player's position on the X-axis in the map: `PLAYER_VIEWPORT_X`, plus the columns the camera moved by.
+   */
+  private int playerX = PLAYER_VIEWPORT_X;
+
+  /**
+   * The player's position on the Y-axis in the map.
+   * This position is within the map itself, so y=0 means the top of the map, not the top of the GUI.
+   * By default, the player needs to be placed on the floor.
+   */
+  private int playerY = MAP_DISTANCE_UNTIL_FLOOR;
+
+  /**
+   * The number of steps of the current jump that were already made,
+   * or `-1` if the player isn't jumping.
+   */
+  private int jumpStep = -1;
+
+  /**
+   * The time of the game, in milliseconds, at which the next step of the jump must happen.
+   */
+  private long nextJumpStepTime = 0;
+
+  /**
+   * The obstacles currently on the map.
+   */
+  private final ArrayList<MovingObstacle> obstacles = new ArrayList<>();
+
+  /**
+   * The obstacles that aren't on the map, ready to be used again.
+   */
+  private final ArrayDeque<MovingObstacle> obstaclePool = new ArrayDeque<>();
+
+  /**
+   * The index, in `spawns`, of the next obstacle to spawn.
+   */
+  private int nextSpawnIndex = 0;
+
+  private Outcome outcome = Outcome.PLAYING;
+
+  /**
+   * The first column of the map in the viewport.
+   */
+  private int cameraX = 0;
+  private final int viewportWidth;
+
+  /**
+   * @param map The map of the level.
+   * @param config Where, when and how fast the obstacles spawn on this map (`null` if there aren't any).
+   * @param allObstacles All the obstacles, by name.
+   * @param playerSkin The matrix of the player.
+   * @param pixelSize The number of characters of a pixel.
+   */
+  public World(Map map, MapSpawnConfig config, HashMap<String, Obstacle> allObstacles, Raster playerSkin, int pixelSize) {
+    this(map, config == null ? new ArrayList<>() : config.getSpawns(), null, allObstacles, playerSkin, pixelSize);
+  }
+
+  /**
+   * Creates a level of the endless mode.
+   * @param map The map of the level.
+   * @param endlessSpawner What obstacle spawns next, and how fast.
+   * @param allObstacles All the obstacles, by name.
+   * @param playerSkin The matrix of the player.
+   * @param pixelSize The number of characters of a pixel.
+   */
+  public World(Map map, EndlessSpawner endlessSpawner, HashMap<String, Obstacle> allObstacles, Raster playerSkin, int pixelSize) {
+    this(map, new ArrayList<>(), endlessSpawner, allObstacles, playerSkin, pixelSize);
+  }
+
+  private World(Map map, ArrayList<ObstacleSpawn> spawns, EndlessSpawner endlessSpawner, HashMap<String, Obstacle> allObstacles, Raster playerSkin, int pixelSize) {
+    this.map = map;
+    this.viewportWidth = Math.min(VIEWPORT_WIDTH, map.getWidth());
+    for (ObstacleSpawn spawn : spawns) {
+      if (!spawn.isTimed()) {
+        this.spawns.add(spawn);
+      }
+    }
+    this.timeline = new SpawnTimeline(spawns);
+    this.endlessSpawner = endlessSpawner;
+    this.allObstacles = allObstacles;
+    this.playerSkin = playerSkin;
+    this.pixelSize = pixelSize;
+    this.playerMask = new CollisionMask(playerSkin, pixelSize);
+    for (int i = 0; i < OBSTACLE_POOL_SIZE; i++) {
+      obstaclePool.add(new MovingObstacle(null, 0, 0, 0, 0));
+    }
+  }
+
+  /**
+   * Makes the player jump, unless the player is already jumping.
+   * The jump itself happens during the next ticks.
+   */
+  public void jump() {
+    if (!canJump()) {
+      return;
+    }
+    jumpStep = 0;
+    nextJumpStepTime = getTime();
+  }
+
+  /**
+   * Advances the game by `TICK_DURATION` milliseconds.
+   * The player and each obstacle make all the steps they had to make during this time.
+   */
+  public void tick() {
+    if (outcome != Outcome.PLAYING) {
+      return;
+    }
+    tick++;
+    long time = getTime();
+    updateCamera(time);
+    updateJump(time);
+    checkCollisions();
+    updateObstacles(time);
+    if (outcome != Outcome.PLAYING) {
+      return;
+    }
+    ObstacleSpawn due;
+    while ((due = timeline.pollDue(time)) != null) {
+      spawnObstacle(due, 1, time);
+    }
+    if (obstacles.isEmpty()) {
+      if (endlessSpawner != null) {
+        ObstacleSpawn spawn = endlessSpawner.next();
+        if (spawn != null) {
+          spawnObstacle(spawn, endlessSpawner.getDelayFactor(time), time);
+        }
+      } else if (nextSpawnIndex < spawns.size()) {
+        spawnObstacle(spawns.get(nextSpawnIndex++), 1, time);
+      } else if (timeline.isEmpty()) {
+        outcome = Outcome.WON;
+      }
+    }
+  }
+
+  /**
+   * Moves the camera to the right, if the map is wider than the viewport.
+   * @param time The current time of the game, in milliseconds.
+   */
+  private void updateCamera(long time) {
+    cameraX = (int)Math.min(time / SCROLL_DELAY, map.getWidth() - viewportWidth);
+    playerX = PLAYER_VIEWPORT_X + cameraX * pixelSize;
+  }
+
+  /**
+   * Makes the steps of the jump that had to happen before the given time.
+   * The player goes up for `JUMP_HEIGHT` steps, then goes down for as many.
+   * @param time The current time of the game, in milliseconds.
+   */
+  private void updateJump(long time) {
+    while (!canJump() && time >= nextJumpStepTime) {
+      playerY += jumpStep < JUMP_HEIGHT ? -1 : 1;
+      jumpStep++;
+      nextJumpStepTime += JUMP_DELAY_BETWEEN_EACH_FRAME;
+      if (jumpStep == JUMP_HEIGHT * 2) {
+        jumpStep = -1;
+      }
+    }
+  }
+
+  /**
+   * Checks if the player touches any of the obstacles (for example after a step of the jump).
+   */
+  private void checkCollisions() {
+    for (MovingObstacle obstacle : obstacles) {
+      if (collides(obstacle)) {
+        outcome = Outcome.LOST;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Makes the steps of the obstacles that had to happen before the given time.
+   * The player loses as soon as an obstacle touches it.
+   * An obstacle is removed once it reaches the left border of the viewport,
+   * and the next one spawns right away.
+   * @param time The current time of the game, in milliseconds.
+   */
+  private void updateObstacles(long time) {
+    for (int i = obstacles.size() - 1; i >= 0; i--) { // backwards, so that removing an obstacle doesn't skip the next one
+      MovingObstacle obstacle = obstacles.get(i);
+      int maxX = cameraX * pixelSize + obstacle.getObstacle().getMatrix().getWidth();
+      while (obstacle.mustStep(time) && obstacle.getX() > maxX) {
+        obstacle.step();
+        if (collides(obstacle)) {
+          outcome = Outcome.LOST;
+          return;
+        }
+      }
+      if (obstacle.getX() <= maxX) {
+        obstaclePool.add(obstacles.remove(i));
+      }
+    }
+  }
+
+  /**
+   * Places a new obstacle at the right border of the viewport.
+   * @param spawn The spawn configuration of the obstacle.
+   * @param delayFactor How much the delay between the steps of the obstacle is reduced (1 to keep the one of `spawn`).
+   * @param time The current time of the game, in milliseconds.
+   */
+  private void spawnObstacle(ObstacleSpawn spawn, double delayFactor, long time) {
+    Obstacle obstacle = allObstacles.get(spawn.getName());
+    if (obstacle == null) {
+      return; // the obstacle doesn't exist, so it's skipped
+    }
+    long delayBetweenEachStep = (long)(spawn.getSpeed() * 0.15 * delayFactor);
+    int posX = (cameraX + viewportWidth - obstacle.getMatrix().getWidth()) * pixelSize;
+    if (!obstacleMasks.containsKey(obstacle)) {
+      obstacleMasks.put(obstacle, new CollisionMask(obstacle.getMatrix(), pixelSize));
+    }
+    MovingObstacle movingObstacle = obstaclePool.poll();
+    if (movingObstacle == null) {
+      movingObstacle = new MovingObstacle(null, 0, 0, 0, 0); // only if several obstacles are on the map at the same time
+    }
+    movingObstacle.reset(obstacle, posX, spawn.getY(), delayBetweenEachStep, time);
+    obstacles.add(movingObstacle);
+  }
+
+  /**
+   * Is the player touching the given obstacle?
+   * Only the opaque pixels count, so the player can touch the transparent corners of an obstacle.
+   *
+   * The player is drawn from the character `playerX` and the obstacle from the character `x - 1`,
+   * both on the line of their Y-coordinate.
+   * @param obstacle The obstacle.
+   * @return `true` if the player collides with the obstacle.
+   */
+  private boolean collides(MovingObstacle obstacle) {
+    CollisionMask obstacleMask = obstacleMasks.get(obstacle.getObstacle());
+    return playerMask.overlaps(obstacleMask, obstacle.getX() - 1 - playerX, obstacle.getY() - playerY);
+  }
+
+  /**
+   * Takes a snapshot of the world, to draw it in another thread while the world keeps moving.
+   * @return The current state of the world, which won't change.
+   */
+  public WorldSnapshot snapshot() {
+    return new WorldSnapshot(this);
+  }
+
+  /**
+   * Can the player jump?
+   * It's necessary to make sure that the player doesn't double-jump.
+   * @return `true` if the player is on the floor.
+   */
+  public boolean canJump() {
+    return jumpStep == -1;
+  }
+
+  /**
+   * Gets the time of the game, which is the number of ticks since the beginning of the level.
+   * @return The time of the game, in milliseconds.
+   */
+  public long getTime() {
+    return tick * TICK_DURATION;
+  }
+
+  public long getTick() { return this.tick; }
+  public Outcome getOutcome() { return this.outcome; }
+  public Map getMap() { return this.map; }
+  public Raster getPlayerSkin() { return this.playerSkin; }
+  public int getPlayerX() { return this.playerX; }
+  public int getPlayerY() { return this.playerY; }
+  public int getCameraX() { return this.cameraX; }
+  public int getViewportWidth() { return this.viewportWidth; }
+  public ArrayList<MovingObstacle> getObstacles() { return this.obstacles; }
+}
@@ -0,0 +1,57 @@
+package main.java;
+
+/**
+ * What a `World` looks like at the end of a tick: the outcome of the level, the camera, and where each sprite is.
+ *
+ * A snapshot never changes once it's created, so it can be given to another thread
+ * (the one drawing the frames) while the world keeps moving:
+ * everything that thread reads belongs to the same tick, without any lock.
+ * The images of the sprites are shared with the world, they're never modified by either of them.
+ */
+public final class WorldSnapshot {
+  private final long tick;
+  private final World.Outcome outcome;
+  private final Raster playerSkin;
+  private final int playerX;
+  private final int playerY;
+  private final int cameraX;
+
+  // the obstacles, stored in arrays that are never exposed
+  private final Raster[] obstacleMatrices;
+  private final int[] obstacleXs;
+  private final int[] obstacleYs;
+
+  /**
+   * Takes a snapshot of a world.
+   * @param world The world, at the end of a tick.
+   */
+  public WorldSnapshot(World world) {
+    this.tick = world.getTick();
+    this.outcome = world.getOutcome();
+    this.playerSkin = world.getPlayerSkin();
+    this.playerX = world.getPlayerX();
+    this.playerY = world.getPlayerY();
+    this.cameraX = world.getCameraX();
+    int count = world.getObstacles().size();
+    this.obstacleMatrices = new Raster[count];
+    this.obstacleXs = new int[count];
+    this.obstacleYs = new int[count];
+    for (int i = 0; i < count; i++) {
+      MovingObstacle obstacle = world.getObstacles().get(i);
+      obstacleMatrices[i] = obstacle.getObstacle().getMatrix();
+      obstacleXs[i] = obstacle.getX();
+      obstacleYs[i] = obstacle.getY();
+    }
+  }
+
+  public long getTick() { return this.tick; }
+  public World.Outcome getOutcome() { return this.outcome; }
+  public Raster getPlayerSkin() { return this.playerSkin; }
+  public int getPlayerX() { return this.playerX; }
+  public int getPlayerY() { return this.playerY; }
+  public int getCameraX() { return this.cameraX; }
+  public int getObstacleCount() { return this.obstacleMatrices.length; }
+  public Raster getObstacleMatrix(int index) { return this.obstacleMatrices[index]; }
+  public int getObstacleX(int index) { return this.obstacleXs[index]; }
+  public int getObstacleY(int index) { return this.obstacleYs[index]; }
+}
@@ -0,0 +1,53 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import main.java.CollisionMask;
+import main.java.Raster;
+
+/**
+ * We place two sprites next to each other and check that only their opaque pixels collide,
+ * including when the masks are wider than a single `long`.
+ */
+public class TestCollisionMask {
+    private static Raster sprite(int width, int height, int[][] opaque) {
+        Raster raster = new Raster(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.set(x, y, Raster.TRANSPARENT);
+            }
+        }
+        for (int[] pixel : opaque) {
+            raster.set(pixel[0], pixel[1], 0);
+        }
+        return raster;
+    }
+
+    @Test
+    public void testTransparentPixelsDontCollide() {
+        // a diagonal: only (0;0) and (1;1) are opaque
+        CollisionMask a = new CollisionMask(sprite(2, 2, new int[][]{ {0, 0}, {1, 1} }), 2);
+        CollisionMask b = new CollisionMask(sprite(1, 1, new int[][]{ {0, 0} }), 2);
+
+        assertTrue(a.overlaps(b, 0, 0));
+        assertFalse(a.overlaps(b, 2, 0)); // on the transparent pixel (1;0)
+        assertTrue(a.overlaps(b, 1, 0)); // half on (0;0)
+        assertTrue(a.overlaps(b, 3, 1));
+        assertFalse(a.overlaps(b, 4, 1)); // just after the sprite
+        assertFalse(a.overlaps(b, -2, 0)); // just before the sprite
+        assertTrue(b.overlaps(a, -3, -1));
+    }
+
+    @Test
+    public void testWideMasks() {
+        CollisionMask wide = new CollisionMask(sprite(100, 1, new int[][]{ {40, 0}, {99, 0} }), 2);
+        CollisionMask dot = new CollisionMask(sprite(1, 1, new int[][]{ {0, 0} }), 1);
+
+        for (int x = 0; x < 200; x++) {
+            boolean expected = x == 80 || x == 81 || x == 198 || x == 199;
+            assertEquals(expected, wide.overlaps(dot, x, 0), "x=" + x);
+            assertEquals(expected, dot.overlaps(wide, -x, 0), "x=" + x);
+        }
+    }
+}
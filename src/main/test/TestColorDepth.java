@@ -0,0 +1,36 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import main.java.ColorDepth;
+
+/**
+ * We check that the color depth is guessed from the usual environment variables,
+ * and that each color is replaced by the closest indexed color (exactly the same one when it exists).
+ */
+public class TestColorDepth {
+    @Test
+    public void testDetect() {
+        assertEquals(ColorDepth.TRUECOLOR, ColorDepth.detect("truecolor", "xterm-256color"));
+        assertEquals(ColorDepth.TRUECOLOR, ColorDepth.detect(null, null));
+        assertEquals(ColorDepth.TRUECOLOR, ColorDepth.detect(null, "xterm-direct"));
+        assertEquals(ColorDepth.XTERM_256, ColorDepth.detect(null, "screen-256color"));
+        assertEquals(ColorDepth.ANSI_16, ColorDepth.detect("", "linux"));
+        assertEquals(ColorDepth.XTERM_256, ColorDepth.fromName("256"));
+        assertNull(ColorDepth.fromName("8"));
+    }
+
+    @Test
+    public void testNearestColors() {
+        for (int index = 16; index < 256; index++) {
+            assertEquals(index, ColorDepth.getNearest256(ColorDepth.get256RGB(index)));
+        }
+        assertEquals(196, ColorDepth.getNearest256(new int[]{ 250, 10, 5 }));
+        assertEquals(241, ColorDepth.getNearest256(new int[]{ 98, 98, 98 })); // a gray stays gray
+        assertEquals(0, ColorDepth.getNearest16(new int[]{ 10, 10, 10 }));
+        assertEquals(11, ColorDepth.getNearest16(new int[]{ 255, 255, 0 }));
+        assertArrayEquals("\u001b[103m".getBytes(), ColorDepth.ANSI_16.encode(new int[]{ 255, 255, 0 }));
+        assertArrayEquals("\u001b[48;5;226m".getBytes(), ColorDepth.XTERM_256.encode(new int[]{ 255, 255, 0 }));
+    }
+}
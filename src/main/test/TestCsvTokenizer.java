@@ -0,0 +1,62 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import main.java.CsvTokenizer;
+
+/**
+ * We read small CSV files and check the values, then check that the errors give the position of the wrong value.
+ */
+public class TestCsvTokenizer {
+    private static CsvTokenizer tokenize(String csv) {
+        return new CsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testValues() throws IOException {
+        CsvTokenizer csv = tokenize("name,speed,y\ncactus,-181,30\r\n\nbird,2147483647,-2147483648");
+        assertTrue(csv.nextRow()); // the header
+        assertTrue(csv.nextRow());
+        assertEquals("cactus", csv.nextString());
+        assertEquals(-181, csv.nextInt());
+        assertEquals(30, csv.nextInt());
+        assertFalse(csv.hasNextValue());
+        assertTrue(csv.nextRow());
+        assertEquals(4, csv.getRow());
+        assertEquals("bird", csv.nextString());
+        assertEquals(Integer.MAX_VALUE, csv.nextInt());
+        assertEquals(Integer.MIN_VALUE, csv.nextInt());
+        assertFalse(csv.nextRow());
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        CsvTokenizer csv = tokenize("a,b\n1,x\n");
+        csv.nextRow();
+        csv.nextRow();
+        assertEquals(1, csv.nextInt());
+        IOException error = assertThrows(IOException.class, csv::nextInt);
+        assertEquals("row 2, column 2: unexpected character 'x'", error.getMessage());
+
+        CsvTokenizer missing = tokenize("a,b\n1,2\n3\n");
+        missing.nextRow();
+        missing.nextRow();
+        missing.nextRow();
+        missing.nextInt();
+        error = assertThrows(IOException.class, missing::nextInt);
+        assertEquals("row 3, column 2: missing value", error.getMessage());
+
+        // a color of a matrix must fit in a byte: 255 would silently become the transparent color
+        CsvTokenizer color = tokenize("a,b,c\n-1,255,3\n");
+        color.nextRow();
+        color.nextRow();
+        assertEquals(-1, color.nextInt(-1, Byte.MAX_VALUE));
+        error = assertThrows(IOException.class, () -> color.nextInt(-1, Byte.MAX_VALUE));
+        assertEquals("row 2, column 2: 255 isn't between -1 and 127", error.getMessage());
+    }
+}
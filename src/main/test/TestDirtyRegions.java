@@ -0,0 +1,105 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import main.java.DirtyRegions;
+import main.java.Map;
+import main.java.Raster;
+import main.java.Viewport;
+
+/**
+ * We move a sprite from one frame to the next and check that only its previous and new boxes are drawn again.
+ * We also scroll a map and check that only the changed span of each line is drawn again, not the whole frame.
+ */
+public class TestDirtyRegions {
+    @Test
+    public void testOnlyMovedSpritesAreDirty() {
+        Object player = new Object();
+        Object obstacle = new Object();
+        DirtyRegions regions = new DirtyRegions(100, 40);
+
+        regions.addSprite(player, 4, 30, 8, 4);
+        regions.addSprite(obstacle, 60, 28, 8, 5);
+        regions.update();
+        assertEquals(2, regions.size());
+        regions.clear();
+
+        // the obstacle moved one cell to the left, the player didn't move
+        regions.addSprite(player, 4, 30, 8, 4);
+        regions.addSprite(obstacle, 59, 28, 8, 5);
+        regions.update();
+        assertEquals(1, regions.size()); // the previous box and the new one are merged
+        assertEquals(59, regions.getX(0));
+        assertEquals(9, regions.getWidth(0));
+        assertEquals(5, regions.getHeight(0));
+        regions.clear();
+
+        // nothing moved
+        regions.addSprite(player, 4, 30, 8, 4);
+        regions.addSprite(obstacle, 59, 28, 8, 5);
+        regions.update();
+        assertEquals(0, regions.size());
+    }
+
+    @Test
+    public void testRegionsAreMergedAndClipped() {
+        DirtyRegions regions = new DirtyRegions(10, 10);
+        regions.add(-5, -5, 7, 7);
+        regions.add(8, 8, 5, 5);
+        regions.add(2, 0, 6, 2); // touches the first one
+        regions.merge();
+        assertEquals(2, regions.size());
+        assertEquals(2 * 8 + 2 * 2, regions.getArea());
+
+        // the same lines side by side, and the same columns one above the other, become one rectangle
+        regions.clear();
+        regions.add(0, 0, 3, 2);
+        regions.add(3, 0, 4, 2);
+        regions.add(0, 2, 7, 1);
+        regions.merge();
+        assertEquals(1, regions.size());
+        assertEquals(7 * 3, regions.getArea());
+
+        // but two lines that change over different spans don't dirty the box around them
+        regions.clear();
+        regions.add(0, 0, 3, 1);
+        regions.add(2, 1, 5, 1);
+        regions.merge();
+        assertEquals(2, regions.size());
+        assertEquals(3 + 5, regions.getArea());
+    }
+
+    @Test
+    public void testScrolledFrameIsNotEntirelyDirty() {
+        Random random = new Random(5);
+        Raster matrix = new Raster(200, 40);
+        for (int y = 0; y < 40; y++) {
+            // a plain sky with a few clouds, and a ground that changes more often
+            for (int x = 0; x < 200; x++) {
+                matrix.getPixels()[y * 200 + x] = (byte)(y < 30 ? (random.nextInt(40) == 0 ? 1 : 0) : random.nextInt(3) + 2);
+            }
+        }
+        Viewport viewport = new Viewport(new Map("test", matrix), 80, 2);
+        int width = viewport.getBackground().getWidth();
+        int height = viewport.getBackground().getHeight();
+        DirtyRegions regions = new DirtyRegions(width, height);
+        Object player = new Object();
+        regions.addSprite(player, 4, 30, 8, 4);
+        regions.update();
+        regions.clear();
+
+        assertTrue(viewport.scrollTo(1));
+        int changed = 0;
+        for (int y = 0; y < height; y++) {
+            regions.add(viewport.getChangedFrom(y), y, viewport.getChangedTo(y) - viewport.getChangedFrom(y), 1);
+            changed += viewport.getChangedTo(y) - viewport.getChangedFrom(y);
+        }
+        regions.addSprite(player, 4, 30, 8, 4);
+        regions.update();
+        assertTrue(changed < width * height);
+        assertEquals(changed, regions.getArea()); // the spans aren't merged into their box
+    }
+}
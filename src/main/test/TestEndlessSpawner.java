@@ -0,0 +1,80 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import main.java.EndlessSpawner;
+import main.java.Map;
+import main.java.MapSpawnConfig;
+import main.java.Obstacle;
+import main.java.ObstacleSpawn;
+import main.java.Raster;
+import main.java.Simulation;
+import main.java.World;
+
+/**
+ * We draw many obstacles from the same config and check that the weights of the config are respected,
+ * that the same seed gives the same run, and that the endless mode never ends with a victory.
+ * A config that only names unknown obstacles is replaced by all the obstacles.
+ */
+public class TestEndlessSpawner {
+    private static MapSpawnConfig createConfig() {
+        ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+        spawns.add(new ObstacleSpawn("block", 40, 32));
+        spawns.add(new ObstacleSpawn("block", 40, 32));
+        spawns.add(new ObstacleSpawn("block", 40, 32));
+        spawns.add(new ObstacleSpawn("wall", 20, 32));
+        return new MapSpawnConfig(spawns);
+    }
+
+    @Test
+    public void testWeightsAndSeed() {
+        EndlessSpawner first = new EndlessSpawner(createConfig(), Arrays.asList("block", "wall"), 7);
+        EndlessSpawner second = new EndlessSpawner(createConfig(), Arrays.asList("block", "wall"), 7);
+        assertEquals(2, first.getRuleCount());
+        int blocks = 0;
+        for (int i = 0; i < 4000; i++) {
+            ObstacleSpawn spawn = first.next();
+            assertEquals(spawn.getName(), second.next().getName());
+            if (spawn.getName().equals("block")) {
+                blocks++;
+            }
+        }
+        assertTrue(blocks > 2800 && blocks < 3200, blocks + " blocks instead of about 3000");
+
+        assertEquals(1, first.getDelayFactor(0));
+        assertTrue(first.getDelayFactor(EndlessSpawner.DIFFICULTY_PERIOD) < 1);
+        assertTrue(first.getDelayFactor(3_600_000) > 0); // the obstacles stop speeding up
+    }
+
+    @Test
+    public void testUnknownObstaclesAreIgnored() {
+        EndlessSpawner spawner = new EndlessSpawner(createConfig(), Arrays.asList("wall", "cactus"), 7);
+        assertEquals(1, spawner.getRuleCount()); // "block" doesn't exist
+        assertEquals("wall", spawner.next().getName());
+
+        spawner = new EndlessSpawner(createConfig(), Arrays.asList("cactus"), 7);
+        assertEquals(1, spawner.getRuleCount()); // nothing left in the config: every obstacle can spawn
+        assertEquals("cactus", spawner.next().getName());
+    }
+
+    @Test
+    public void testEndlessRunIsDeterministic() {
+        HashMap<String, Obstacle> obstacles = new HashMap<>();
+        obstacles.put("block", new Obstacle("block", new Raster(2, 2)));
+        obstacles.put("wall", new Obstacle("wall", new Raster(2, 3)));
+        long[] checksums = new long[2];
+        for (int run = 0; run < 2; run++) {
+            EndlessSpawner spawner = new EndlessSpawner(createConfig(), obstacles.keySet(), 42);
+            World world = new World(new Map("test", new Raster(40, 40)), spawner, obstacles, new Raster(2, 2), 2);
+            Simulation simulation = new Simulation(world, new long[0]);
+            assertEquals(World.Outcome.LOST, simulation.run(Simulation.DEFAULT_MAX_TICKS));
+            checksums[run] = simulation.getChecksum();
+        }
+        assertEquals(checksums[0], checksums[1]);
+    }
+}
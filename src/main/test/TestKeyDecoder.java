@@ -0,0 +1,86 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import main.java.KeyDecoder;
+import main.java.KeyEvent;
+
+/**
+ * We type keys as a console in raw mode would send them, sometimes cut in several reads,
+ * and check that each of them gives exactly one event.
+ * The answers of the console to the questions of the game arrive the same way, between the keys.
+ */
+public class TestKeyDecoder {
+    private final ArrayList<KeyEvent> events = new ArrayList<>();
+    private final KeyDecoder decoder = new KeyDecoder(events::add);
+
+    private void type(String bytes, long time) {
+        byte[] b = bytes.getBytes(StandardCharsets.ISO_8859_1);
+        decoder.decode(b, b.length, time);
+    }
+
+    private int code(int index) {
+        return events.get(index).getCode();
+    }
+
+    @Test
+    public void testBurstOfKeys() {
+        type("  \u001b[A\u001b[Bq\r", 7);
+        assertEquals(6, events.size());
+        assertEquals(' ', code(0));
+        assertEquals(' ', code(1));
+        assertEquals(KeyEvent.UP, code(2));
+        assertEquals(KeyEvent.DOWN, code(3));
+        assertEquals('q', code(4));
+        assertEquals('\r', code(5));
+        assertEquals(7, events.get(5).getTime());
+    }
+
+    @Test
+    public void testEscapeSequences() {
+        type("\u001b[", 1);
+        assertTrue(events.isEmpty()); // the sequence isn't complete yet
+        type("C", 2);
+        assertEquals(KeyEvent.RIGHT, code(0));
+        assertEquals(2, events.get(0).getTime());
+        type("\u001bOD\u001b[1;5A\u001b[3~", 3); // application mode, Ctrl + up, Delete (unknown)
+        assertEquals(3, events.size());
+        assertEquals(KeyEvent.LEFT, code(1));
+        assertEquals(KeyEvent.UP, code(2));
+        type("\u001b", 4); // Escape alone
+        assertEquals(3, events.size()); // it may still be the beginning of a sequence
+        decoder.endEscape();
+        type("\u001bq", 5); // Alt + q
+        assertEquals(6, events.size());
+        assertEquals(KeyEvent.ESCAPE, code(3));
+        assertEquals(KeyEvent.ESCAPE, code(4));
+        assertEquals('q', code(5));
+        assertEquals(4, events.get(3).getTime()); // when Escape was typed, not when it was decided
+    }
+
+    @Test
+    public void testSequenceCutAfterTheEscape() {
+        type("\u001b", 1);
+        assertTrue(decoder.isEscapePending());
+        type("[A", 2);
+        assertFalse(decoder.isEscapePending());
+        assertEquals(1, events.size()); // no Escape, and no '[' or 'A'
+        assertEquals(KeyEvent.UP, code(0));
+        decoder.endEscape(); // nothing is pending any more
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void testAnswersOfTheConsole() {
+        type(" \u001b[?2026;2$y ", 1); // supported, currently off
+        type("\u001b[?2026;0$y\u001b[?1049;1$y", 2); // unknown mode, then a mode the game didn't ask about
+        assertEquals(3, events.size());
+        assertEquals(' ', code(0));
+        assertEquals(KeyEvent.SYNCHRONIZED_UPDATES, code(1));
+        assertEquals(' ', code(2));
+    }
+}
@@ -0,0 +1,38 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+
+import main.java.Map;
+import main.java.MapCache;
+import main.java.Raster;
+
+/**
+ * We fill a cache that can only hold two maps and check that the least recently used one is forgotten.
+ */
+public class TestMapCache {
+    @Test
+    public void testLeastRecentlyUsedMapIsEvicted() throws IOException {
+        MapCache cache = new MapCache(2 * 10 * 10);
+        for (String name : new String[]{ "a", "b", "c" }) {
+            cache.register(name, 10, 10, mapName -> new Map(mapName, new Raster(10, 10)));
+        }
+
+        Map a = cache.get("a");
+        cache.get("b");
+        assertSame(a, cache.get("a")); // "b" is now the least recently used
+        cache.get("c");
+        assertEquals(1, cache.getEvictions());
+        assertEquals(200, cache.getBytes());
+
+        assertSame(a, cache.get("a"));
+        cache.get("b"); // decoded again
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(10, cache.getWidth("c")); // without decoding it again
+        assertEquals(4, cache.getMisses());
+        assertThrows(IOException.class, () -> cache.get("unknown"));
+    }
+}
@@ -0,0 +1,117 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import main.java.Color;
+import main.java.ColorDepth;
+import main.java.FrameBuffer;
+import main.java.Renderer;
+import main.java.Terminal;
+
+/**
+ * We render the same frame twice and check that only the cells that changed are written the second time.
+ * With half blocks, we check that each character shows two lines, even when one of them is transparent.
+ */
+public class TestRenderer {
+    @Test
+    public void testOnlyChangesAreWritten() {
+        Color[] colors = new Color[]{ new Color("\u001b[48;2;255;0;0m", true) };
+        FrameBuffer frame = new FrameBuffer(4, 2);
+        Renderer renderer = new Renderer(colors, 1, 1);
+        renderer.reset(4, 2, FrameBuffer.TRANSPARENT);
+
+        assertEquals(0, renderer.render(frame));
+
+        frame.set(1, 1, 0);
+        int bytes = renderer.render(frame);
+        assertTrue(bytes > 0);
+        assertEquals(bytes, renderer.getLastFrameBytes());
+        assertEquals(0, renderer.render(frame));
+        assertEquals(3, renderer.getFrames());
+        assertEquals(bytes, renderer.getTotalBytes());
+    }
+
+    @Test
+    public void testColorsAreCoalesced() {
+        String red = "\u001b[48;2;255;0;0m";
+        Color[] colors = new Color[]{ new Color(red, true) };
+        FrameBuffer frame = new FrameBuffer(4, 1);
+        frame.fill((short)0);
+        Renderer renderer = new Renderer(colors, 1, 1);
+        renderer.reset(4, 1, FrameBuffer.TRANSPARENT);
+
+        String expected = "\033[1;1H" + red + "    " + "\u001b[0m";
+        assertEquals(expected.length(), renderer.render(frame));
+        String uncoalesced = "\033[1;1H" + (red + " " + "\u001b[0m").repeat(4);
+        assertEquals(uncoalesced.length() - expected.length(), renderer.getLastFrameSavedBytes());
+    }
+
+    @Test
+    public void testBackgroundIsCopiedFromItsCache() {
+        Color[] colors = new Color[]{ new Color("\u001b[48;2;255;0;0m", true), new Color("\u001b[48;2;0;0;255m", true) };
+        Random random = new Random(1);
+        FrameBuffer background = new FrameBuffer(30, 5);
+        FrameBuffer frame = new FrameBuffer(30, 5);
+        for (int i = 0; i < background.getCells().length; i++) {
+            background.getCells()[i] = (short)(random.nextInt(3) - 1);
+            frame.getCells()[i] = random.nextInt(4) == 0 ? (short)random.nextInt(2) : background.getCells()[i];
+        }
+
+        // the same frames must give the same bytes, with or without the cache
+        String[] outputs = new String[2];
+        Terminal.flush(); // what the other tests wrote
+        for (int run = 0; run < 2; run++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Terminal.setOutput(Channels.newChannel(output));
+            Renderer renderer = new Renderer(colors, 1, 1);
+            renderer.reset(30, 5, FrameBuffer.TRANSPARENT);
+            renderer.setBackground(run == 0 ? null : background);
+            renderer.render(background);
+            renderer.render(frame);
+            renderer.render(background);
+            Terminal.flush();
+            outputs[run] = output.toString();
+        }
+        Terminal.setOutput(Channels.newChannel(System.out));
+        assertEquals(outputs[0], outputs[1]);
+    }
+
+    @Test
+    public void testHalfBlocks() {
+        String red = "\u001b[48;2;255;0;0m";
+        String blue = "\u001b[48;2;0;0;255m";
+        Color[] colors = new Color[]{ new Color(red, true), new Color(blue, true) };
+        FrameBuffer frame = new FrameBuffer(4, 3);
+        frame.set(0, 0, 0); // red over blue
+        frame.set(0, 1, 1);
+        frame.set(1, 0, 0); // red over the console
+        frame.set(2, 1, 1); // the console over blue
+        frame.set(3, 0, 1); // blue over blue
+        frame.set(3, 1, 1);
+        frame.set(1, 2, 0); // the last line is alone
+
+        Terminal.flush();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Terminal.setOutput(Channels.newChannel(output));
+        Renderer renderer = new Renderer(colors, ColorDepth.TRUECOLOR, true, 1, 1);
+        renderer.reset(4, 3, FrameBuffer.TRANSPARENT);
+        int bytes = renderer.render(frame);
+        assertEquals(0, renderer.render(frame));
+        Terminal.flush();
+        Terminal.setOutput(Channels.newChannel(System.out));
+
+        String redForeground = "\u001b[38;2;255;0;0m";
+        String blueForeground = "\u001b[38;2;0;0;255m";
+        String expected = "\033[1;1H" + blue + redForeground + "\u2580" + "\u001b[49m" + "\u2580" + blueForeground + "\u2584" + blue + " " + "\u001b[0m"
+            + "\033[2;2H" + "\u001b[49m" + redForeground + "\u2580" + "\u001b[0m";
+        assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+        assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, bytes);
+        assertEquals(2, renderer.getScreenHeight());
+    }
+}
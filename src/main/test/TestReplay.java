@@ -0,0 +1,39 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import main.java.Replay;
+import main.java.World;
+
+/**
+ * We write a replay in a file, read it again and check that nothing was lost,
+ * even the jumps that are far from each other, and that the file stays small.
+ */
+public class TestReplay {
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Replay replay = new Replay("desert", true, -42);
+        long[] jumps = { 0, 3, 3, 200, 5_000_000_000L };
+        for (long tick : jumps) {
+            replay.recordJump(tick);
+        }
+        replay.finish(World.Outcome.LOST, 5_000_000_100L);
+
+        File file = File.createTempFile("test", Replay.EXTENSION);
+        file.deleteOnExit();
+        replay.write(file.getPath());
+        Replay read = Replay.read(file.getPath());
+
+        assertEquals("desert", read.getMapName());
+        assertTrue(read.isEndless());
+        assertEquals(-42, read.getSeed());
+        assertArrayEquals(jumps, read.getJumpTicks());
+        assertEquals(World.Outcome.LOST, read.getOutcome());
+        assertEquals(5_000_000_100L, read.getEndTick());
+        assertTrue(file.length() < 40, "the replay takes " + file.length() + " bytes");
+    }
+}
@@ -0,0 +1,74 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import main.java.Map;
+import main.java.MapSpawnConfig;
+import main.java.Obstacle;
+import main.java.ObstacleSpawn;
+import main.java.Raster;
+import main.java.Simulation;
+import main.java.World;
+
+/**
+ * We play the same level several times without a console and check that the runs are identical,
+ * that jumping at the right time avoids the obstacle, and that the obstacles of a timeline spawn on time.
+ */
+public class TestSimulation {
+    private static World createWorld() {
+        ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+        spawns.add(new ObstacleSpawn("block", 40, 32));
+        HashMap<String, Obstacle> obstacles = new HashMap<>();
+        obstacles.put("block", new Obstacle("block", new Raster(2, 2)));
+        return new World(new Map("test", new Raster(40, 40)), new MapSpawnConfig(spawns), obstacles, new Raster(2, 2), 2);
+    }
+
+    @Test
+    public void testRunsAreDeterministic() {
+        Simulation first = new Simulation(createWorld(), new long[0]);
+        Simulation second = new Simulation(createWorld(), new long[0]);
+        assertEquals(World.Outcome.LOST, first.run(Simulation.DEFAULT_MAX_TICKS));
+        assertEquals(World.Outcome.LOST, second.run(Simulation.DEFAULT_MAX_TICKS));
+        assertEquals(first.getWorld().getTick(), second.getWorld().getTick());
+        assertEquals(first.getChecksum(), second.getChecksum());
+    }
+
+    @Test
+    public void testJumpingAvoidsTheObstacle() {
+        Simulation withoutJump = new Simulation(createWorld(), new long[0]);
+        withoutJump.run(Simulation.DEFAULT_MAX_TICKS);
+        long lostAt = withoutJump.getWorld().getTick();
+
+        // the jump lasts long enough for the obstacle to pass under the player
+        Simulation withJump = new Simulation(createWorld(), new long[]{ lostAt - 20 });
+        assertEquals(World.Outcome.WON, withJump.run(Simulation.DEFAULT_MAX_TICKS));
+    }
+
+    @Test
+    public void testTimedSpawnsOverlap() {
+        ArrayList<ObstacleSpawn> spawns = new ArrayList<>();
+        for (int i = 999; i >= 0; i--) { // not sorted, on purpose
+            spawns.add(new ObstacleSpawn("block", 40, 0, 100 + i * 50));
+        }
+        HashMap<String, Obstacle> obstacles = new HashMap<>();
+        obstacles.put("block", new Obstacle("block", new Raster(2, 2)));
+        // the obstacles are at the top of the map, so they never touch the player
+        World world = new World(new Map("test", new Raster(40, 40)), new MapSpawnConfig(spawns), obstacles, new Raster(2, 2), 2);
+
+        int maxObstacles = 0;
+        while (world.getOutcome() == World.Outcome.PLAYING && world.getTick() < Simulation.DEFAULT_MAX_TICKS) {
+            world.tick();
+            if (world.getTime() < 100) {
+                assertTrue(world.getObstacles().isEmpty()); // nothing spawns before the first time
+            }
+            maxObstacles = Math.max(maxObstacles, world.getObstacles().size());
+        }
+        assertEquals(World.Outcome.WON, world.getOutcome());
+        assertTrue(world.getTime() >= 100 + 999 * 50);
+        assertTrue(maxObstacles > 1, "the obstacles should be on the map at the same time");
+    }
+}
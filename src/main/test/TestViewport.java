@@ -0,0 +1,93 @@
+package main.test;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import main.java.BackgroundCache;
+import main.java.FrameBuffer;
+import main.java.Map;
+import main.java.MapChunks;
+import main.java.Raster;
+import main.java.Viewport;
+
+/**
+ * We scroll through a very wide map, one column at a time, and check that the background always shows
+ * the right columns, while only a few chunks of the map are in memory.
+ * We also check that the encoded background follows the scroll, and that the changed cells are all reported.
+ */
+public class TestViewport {
+    private static final int WIDTH = 20_000;
+    private static final int HEIGHT = 5;
+
+    private static int pixel(int x, int y) {
+        return (x * 7 + y) % 50;
+    }
+
+    @Test
+    public void testScrollingThroughAWideMap() {
+        ByteBuffer pixels = ByteBuffer.allocate(WIDTH * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                pixels.put((byte)pixel(x, y));
+            }
+        }
+        Map map = new Map("wide", WIDTH, HEIGHT, pixels);
+        Viewport viewport = new Viewport(map, 80, 2);
+        FrameBuffer background = viewport.getBackground();
+        assertEquals(160, background.getWidth());
+
+        for (int cameraX = 0; cameraX <= WIDTH - 80; cameraX++) {
+            assertEquals(cameraX != 0, viewport.scrollTo(cameraX));
+            assertTrue(viewport.getChunks().getLoadedCount() <= viewport.getChunks().getCapacity());
+            if (cameraX % 997 == 0 || cameraX == WIDTH - 80) {
+                for (int x = 0; x < 80; x++) {
+                    for (int y = 0; y < HEIGHT; y++) {
+                        assertEquals(pixel(cameraX + x, y), background.get(x * 2 + 1, y), "column " + (cameraX + x));
+                    }
+                }
+            }
+        }
+        // each chunk was read once, in order
+        assertEquals((WIDTH + MapChunks.CHUNK_WIDTH - 1) / MapChunks.CHUNK_WIDTH, viewport.getChunks().getLoads());
+
+        viewport.scrollTo(100); // going back draws everything again
+        assertEquals(pixel(100, 3), background.get(0, 3));
+    }
+
+    @Test
+    public void testScrollingTheEncodedBackground() {
+        Random random = new Random(3);
+        Raster matrix = new Raster(300, 6);
+        for (int i = 0; i < matrix.getPixels().length; i++) {
+            matrix.getPixels()[i] = (byte)(random.nextInt(4) == 0 ? random.nextInt(12) - 1 : 0); // long runs, some transparent cells
+        }
+        Viewport viewport = new Viewport(new Map("test", matrix), 40, 2);
+        FrameBuffer background = viewport.getBackground();
+        // sequences of different lengths, so that the lines really move
+        BackgroundCache cache = new BackgroundCache(background, colorIndex -> ("<" + colorIndex + ">").getBytes(), (byte)' ');
+
+        for (int cameraX = 1; cameraX <= 260; cameraX += 1 + cameraX % 3) {
+            short[] before = Arrays.copyOf(background.getCells(), background.getCells().length);
+            assertTrue(viewport.scrollTo(cameraX));
+            assertTrue(viewport.getShift() > 0);
+            cache.scroll(background, viewport.getShift());
+
+            BackgroundCache expected = new BackgroundCache(background, colorIndex -> ("<" + colorIndex + ">").getBytes(), (byte)' ');
+            for (int y = 0; y < background.getHeight(); y++) {
+                int length = expected.getEndOffset(background.getWidth() - 1, y);
+                assertEquals(length, cache.getEndOffset(background.getWidth() - 1, y));
+                assertArrayEquals(Arrays.copyOf(expected.getLine(y), length), Arrays.copyOf(cache.getLine(y), length), "line " + y + " at " + cameraX);
+                for (int x = 0; x < background.getWidth(); x++) {
+                    assertEquals(expected.getCellOffset(x, y), cache.getCellOffset(x, y));
+                    if (before[y * background.getWidth() + x] != background.get(x, y)) {
+                        assertTrue(x >= viewport.getChangedFrom(y) && x < viewport.getChangedTo(y), "cell " + x + ";" + y + " at " + cameraX);
+                    }
+                }
+            }
+        }
+    }
+}